@@ -0,0 +1,134 @@
+package com.genius.search;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Song;
+import com.genius.model.enums.Genre;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Local song search over a synthetic catalog, the way the Database runs it but
+ * without its locks:
+ * <ul>
+ *   <li>{@code containing}: the trigram index with verification, as
+ *       {@code Database.searchSongsContaining} does;</li>
+ *   <li>{@code streamFilter}: the lower-cased {@code contains} filter over every
+ *       song that local search used before the indexes;</li>
+ *   <li>{@code ranked}: BM25 over titles, artist names and lyrics plus the
+ *       popularity prior, top 20, as {@code Database.searchSongsRanked} does.</li>
+ * </ul>
+ *
+ * <p>Songs are spread over one artist per 500 songs. Titles and lyrics are drawn
+ * from a small vocabulary with a fixed seed, so runs are repeatable. The queries
+ * match a handful of songs ("12345"), one title in 400 ("ghost riv"), every song
+ * of one artist in 35 ("swif") and nothing.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LocalSearchBenchmark {
+    private static final String[] WORDS = {
+            "ghost", "river", "night", "love", "fire", "heart", "city", "dream", "rain", "gold",
+            "shadow", "light", "road", "home", "wild", "blue", "summer", "dance", "lonely", "stars"
+    };
+    private static final String[] FIRST_NAMES = {"Taylor", "Maya", "Leon", "Ruby", "Omar"};
+    private static final String[] LAST_NAMES = {"Swift", "Stone", "Rivers", "Vance", "Cole", "Hart", "Lane"};
+    private static final int SONGS_PER_ARTIST = 500;
+    private static final int RANKED_RESULTS = 20;
+
+    @Param({"50000", "1000000"})
+    public int songs;
+
+    @Param({"12345", "ghost riv", "swif", "nothing-here"})
+    public String query;
+
+    private final List<Song> catalog = new ArrayList<>();
+    private final SongIndex songIndex = new SongIndex();
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    private Set<String> tokens;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Artist> artists = new ArrayList<>();
+        for (int i = 0; i * SONGS_PER_ARTIST < songs; i++) {
+            String name = FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[i / FIRST_NAMES.length % LAST_NAMES.length]
+                    + (i >= FIRST_NAMES.length * LAST_NAMES.length ? " " + i : "");
+            artists.add(new Artist("artist_" + i, "secret", name, 30, "artist" + i + "@example.com"));
+        }
+        Date released = new Date(0);
+        for (int id = 0; id < songs; id++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+            StringBuilder lyrics = new StringBuilder();
+            for (int line = 0; line < 4; line++) {
+                for (int word = 0; word < 6; word++) {
+                    lyrics.append(WORDS[random.nextInt(WORDS.length)]).append(word < 5 ? ' ' : '\n');
+                }
+            }
+            Song song = new Song(title, lyrics.toString(), List.of(artists.get(id / SONGS_PER_ARTIST)),
+                    Genre.POP, released, id, null);
+            song.setId(id);
+            song.setViews(random.nextInt(100_000));
+            catalog.add(song);
+            songIndex.add(song);
+            trigramIndex.add(song);
+        }
+        tokens = new LinkedHashSet<>(Tokenizer.tokens(query));
+    }
+
+    @Benchmark
+    public int[] containing() {
+        return trigramIndex.search(query, catalog::get);
+    }
+
+    @Benchmark
+    public List<Song> streamFilter() {
+        return catalog.stream()
+                .filter(song -> song.getTitle().toLowerCase().contains(query.toLowerCase()) ||
+                        song.getArtists().stream().anyMatch(
+                                artist -> artist.getName().toLowerCase().contains(query.toLowerCase())))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int[] ranked(LyricsState lyrics) {
+        SongRanker ranker = new SongRanker();
+        songIndex.score(tokens, ranker);
+        lyrics.index.score(tokens, ranker);
+        return ranker.top(RANKED_RESULTS, id -> catalog.get(id).getViews());
+    }
+
+    /**
+     * The lyrics index, only built for the ranked benchmark since it takes most of the memory.
+     */
+    @State(Scope.Benchmark)
+    public static class LyricsState {
+        final LyricsIndex index = new LyricsIndex();
+
+        @Setup
+        public void setUp(LocalSearchBenchmark benchmark) {
+            index.addAll(benchmark.catalog);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.genius.services.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a Genius search response by streaming it with {@link GeniusDecoder}
+ * against parsing it into a Gson tree first and reading the same fields from
+ * the tree, as the service did before. Allocation per decode is the figure of
+ * interest: run with {@code -prof gc} and compare {@code gc.alloc.rate.norm}.
+ *
+ * <p>The response is synthetic but shaped like a real one: each hit carries the
+ * fields the decoder reads plus the highlights, stats, media and description
+ * subtrees it skips.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeniusDecoderBenchmark {
+
+    @Param({"10", "50"})
+    public int hits;
+
+    private String response;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("{\"meta\":{\"status\":200},\"response\":{\"hits\":[");
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"highlights\":[{\"property\":\"lyrics\",\"value\":\"")
+                    .append("a highlighted lyric fragment ".repeat(4))
+                    .append("\",\"snippet\":true,\"ranges\":[{\"start\":0,\"end\":12}]}],")
+                    .append("\"index\":\"song\",\"type\":\"song\",\"result\":{")
+                    .append("\"annotation_count\":").append(i).append(',')
+                    .append("\"api_path\":\"/songs/").append(i).append("\",")
+                    .append("\"full_title\":\"Song ").append(i).append(" by Artist ").append(i).append("\",")
+                    .append("\"header_image_thumbnail_url\":\"https://images.genius.com/").append(i).append(".300x300x1.jpg\",")
+                    .append("\"id\":").append(i).append(',')
+                    .append("\"path\":\"/Artist-").append(i).append("-song-").append(i).append("-lyrics\",")
+                    .append("\"song_art_image_url\":\"https://images.genius.com/").append(i).append(".1000x1000x1.jpg\",")
+                    .append("\"stats\":{\"unreviewed_annotations\":0,\"concurrents\":3,\"hot\":false,\"pageviews\":")
+                    .append(1000 + i).append("},")
+                    .append("\"title\":\"Song ").append(i).append("\",")
+                    .append("\"description\":{\"plain\":\"").append("A long description of the song. ".repeat(20)).append("\"},")
+                    .append("\"media\":[{\"provider\":\"youtube\",\"type\":\"video\",\"url\":\"https://youtube.example/").append(i)
+                    .append("\"},{\"provider\":\"spotify\",\"type\":\"audio\",\"url\":\"https://spotify.example/").append(i).append("\"}],")
+                    .append("\"primary_artist\":{\"api_path\":\"/artists/").append(i).append("\",\"id\":").append(i)
+                    .append(",\"image_url\":\"https://images.genius.com/artist").append(i).append(".jpg\",")
+                    .append("\"is_verified\":true,\"name\":\"Artist ").append(i).append("\",\"url\":\"https://genius.com/artists/").append(i).append("\"},")
+                    .append("\"primary_tag\":{\"id\":1,\"name\":\"Pop\"},")
+                    .append("\"tags\":[{\"id\":1,\"name\":\"Pop\"},{\"id\":2,\"name\":\"Dance\"}]}}");
+        }
+        response = json.append("]}}").toString();
+    }
+
+    @Benchmark
+    public List<SearchHit> streaming() throws IOException {
+        return GeniusDecoder.readSearchHits(new StringReader(response));
+    }
+
+    @Benchmark
+    public List<SearchHit> tree() {
+        JsonObject root = JsonParser.parseReader(new StringReader(response)).getAsJsonObject();
+        List<SearchHit> result = new ArrayList<>();
+        for (JsonElement element : root.getAsJsonObject("response").getAsJsonArray("hits")) {
+            JsonObject hit = element.getAsJsonObject();
+            JsonObject song = hit.getAsJsonObject("result");
+            JsonObject artist = song.getAsJsonObject("primary_artist");
+            List<String> tags = new ArrayList<>();
+            JsonArray tagArray = song.getAsJsonArray("tags");
+            for (JsonElement tag : tagArray) {
+                tags.add(tag.getAsJsonObject().get("name").getAsString());
+            }
+            result.add(new SearchHit(hit.get("type").getAsString(), new GeniusSong(
+                    song.get("id").getAsInt(),
+                    song.get("title").getAsString(),
+                    song.get("path").getAsString(),
+                    song.get("song_art_image_url").getAsString(),
+                    song.getAsJsonObject("stats").get("pageviews").getAsInt(),
+                    new GeniusArtist(artist.get("id").getAsInt(), artist.get("name").getAsString(),
+                            artist.get("is_verified").getAsBoolean(), artist.get("image_url").getAsString()),
+                    song.getAsJsonObject("primary_tag").get("name").getAsString(),
+                    tags), null));
+        }
+        return List.copyOf(result);
+    }
+}
@@ -0,0 +1,84 @@
+package com.genius.services.api;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Extracting lyrics from a saved Genius song page with {@link LyricsExtractor}
+ * against parsing the page into a Jsoup document and selecting the lyrics
+ * containers, as the service did before. Run with {@code -prof gc} to compare
+ * allocation as well as time.
+ *
+ * <p>The page is the test fixture {@code lyrics/song-page.html}. Real pages carry
+ * a few hundred KB of inline script (the preloaded page state) ahead of the
+ * lyrics; {@code scriptKb} pads the fixture's head with that much script so the
+ * cost of skipping it shows.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LyricsExtractorBenchmark {
+    private static final String FIXTURE = "/lyrics/song-page.html";
+
+    @Param({"0", "400"})
+    public int scriptKb;
+
+    private String page;
+
+    @Setup
+    public void setUp() throws IOException {
+        String saved;
+        try (InputStream in = LyricsExtractorBenchmark.class.getResourceAsStream(FIXTURE)) {
+            if (in == null) {
+                throw new IOException("Missing " + FIXTURE + "; run with the test resources on the class path");
+            }
+            saved = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        StringBuilder script = new StringBuilder("<script>window.__APP_CONFIG__ = JSON.parse('{");
+        for (int i = 0; script.length() < scriptKb * 1024; i++) {
+            script.append("\"referent").append(i).append("\":{\"id\":").append(i)
+                    .append(",\"fragment\":\"a <b>fragment</b> of the lyrics &amp; more\",\"votes_total\":").append(i % 50)
+                    .append(",\"annotations\":[{\"body\":{\"html\":\"<p>An annotation</p>\"}}]},");
+        }
+        script.append("}');</script>\n");
+        page = saved.replace("</head>", script + "</head>");
+    }
+
+    @Benchmark
+    public Lyrics streaming() throws IOException {
+        return LyricsExtractor.extract(new StringReader(page), true);
+    }
+
+    @Benchmark
+    public String jsoup() {
+        Document doc = Jsoup.parse(page, "https://genius.com/");
+        return doc.select("div[data-lyrics-container=true]").stream()
+                .map(e -> e.html()
+                        .replaceAll("<[^>]*>", "")
+                        .replaceAll("\\[.*?\\]", "")
+                        .trim())
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.joining("\n\n"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.accounts.User;
+import com.genius.model.content.Comment;
+import com.genius.model.content.Song;
+import com.genius.model.enums.Genre;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to save and load a whole catalog snapshot. The entity count is split
+ * into 10% accounts (half of them artists), 50% songs and 40% comments, and
+ * lyrics are kept inline as they are without a lyrics store.
+ *
+ * <p>Run with {@code gradle jmh}, or {@code gradle jmhJar} and then
+ * {@code java -jar build/libs/*-jmh.jar CatalogCodecBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogCodecBenchmark {
+    private static final String LYRICS = "Verse line one\nVerse line two\n\nChorus line\n".repeat(8);
+
+    @Param({"10000", "100000", "1000000"})
+    public int entities;
+
+    private CatalogSnapshot catalog;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        catalog = new CatalogSnapshot();
+        int accounts = entities / 10;
+        int songs = entities / 2;
+        int comments = entities - accounts - songs;
+
+        Artist[] artists = new Artist[Math.max(1, accounts / 2)];
+        User[] users = new User[Math.max(1, accounts - artists.length)];
+        for (int i = 0; i < artists.length; i++) {
+            artists[i] = new Artist("artist_" + i, "secret", "Artist " + i, 30, "artist" + i + "@example.com");
+            catalog.accounts.add(artists[i]);
+        }
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User("user_" + i, "secret", "User " + i, 30, "user" + i + "@example.com");
+            catalog.accounts.add(users[i]);
+        }
+        for (int i = 0; i < songs; i++) {
+            Song song = new Song("Song " + i, LYRICS, List.of(artists[i % artists.length]),
+                    Genre.POP, new Date(), i, "https://images.example.com/" + i + ".jpg");
+            song.setId(i);
+            catalog.songs.add(song);
+        }
+        for (int i = 0; i < comments; i++) {
+            catalog.songs.get(i % songs).addComment(new Comment(users[i % users.length], "Comment " + i, new Date()));
+        }
+
+        encoded = save();
+        System.out.println("\nSnapshot of " + entities + " entities: " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        CatalogCodec.write(buffer, catalog);
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public CatalogSnapshot load() throws IOException {
+        return CatalogCodec.read(new ByteArrayInputStream(encoded));
+    }
+}
@@ -5,10 +5,17 @@ import com.genius.model.accounts.Artist;
 import com.genius.model.accounts.User;
 import com.genius.services.*;
 import com.genius.util.Database;
+import com.genius.util.DiskCache;
 import com.genius.util.PasswordHasher;
+import com.genius.util.storage.InMemoryStorage;
+import com.genius.util.storage.LogStructuredStorage;
+import com.genius.util.storage.SnapshotFileStorage;
+import com.genius.util.storage.StorageBackend;
 import com.genius.view.CLI;
 
 public class App {
+    // Extracted lyrics kept on disk so songs are scraped from genius.com once
+    private static final long LYRICS_CACHE_MAX_BYTES = 256L * 1024 * 1024;
 
     private static SongService songService;
     private static AlbumService albumService;
@@ -34,14 +41,15 @@ public class App {
 
         try {
             // Initialize services
-            Database database = new Database();
-            geniusAPI = new GeniusAPIService(apiToken);
+            Database database = new Database(createStorage(System.getenv("GENIUS_STORAGE")));
+            geniusAPI = new GeniusAPIService(apiToken, HttpSettings.defaults(),
+                    new DiskCache(Database.LYRICS_CACHE_DIR, LYRICS_CACHE_MAX_BYTES));
             SongService songService = new SongService(database, geniusAPI);
             AlbumService albumService = new AlbumService(database, songService);
             AccountService accountService = new AccountService(database);
             AuthenticationService authService = new AuthenticationService(database);
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                database.saveData();
+                database.close();
                 System.out.println("Data saved successfully on shutdown");
             }));
             // Initialize CLI with all services
@@ -63,6 +71,26 @@ public class App {
 
 
 
+    /**
+     * Picks the storage backend named by GENIUS_STORAGE: "memory", "snapshot",
+     * or "log" (the default).
+     */
+    private static StorageBackend createStorage(String name) {
+        if (name == null || name.isEmpty()) {
+            name = "log";
+        }
+        switch (name.toLowerCase()) {
+            case "memory":
+                return new InMemoryStorage();
+            case "snapshot":
+                return new SnapshotFileStorage(Database.DATA_FILE, Database.LYRICS_FILE);
+            case "log":
+                return new LogStructuredStorage(Database.DATA_FILE, Database.LOG_FILE, Database.LYRICS_FILE);
+            default:
+                throw new IllegalArgumentException("Unknown GENIUS_STORAGE backend: " + name);
+        }
+    }
+
     // Modified initializeSeedData to accept required services
     private static void initializeSeedData(Database database, AccountService accountService) {
         try {
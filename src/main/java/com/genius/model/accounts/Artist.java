@@ -7,6 +7,7 @@ import com.genius.model.enums.Role;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Artist extends Account {
     private String geniusId;
@@ -19,8 +20,8 @@ public class Artist extends Account {
     public Artist(String username, String password, String name, int age,
                   String email) {
         super(username, password, name, age, email, Role.ARTIST);
-        this.songs = new ArrayList<>();
-        this.albums = new ArrayList<>();
+        this.songs = new CopyOnWriteArrayList<>();
+        this.albums = new CopyOnWriteArrayList<>();
         this.verified = false;
     }
 
@@ -58,6 +59,14 @@ public class Artist extends Account {
         return verified;
     }
 
+    public String getGeniusId() {
+        return geniusId;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
 
 
 }
\ No newline at end of file
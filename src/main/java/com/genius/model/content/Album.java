@@ -4,6 +4,7 @@ import com.genius.model.accounts.Artist;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Album {
     private String title;
@@ -15,7 +16,7 @@ public class Album {
         this.title = title;
         this.artist = artist;
         this.releaseDate = releaseDate;
-        this.tracklist = new ArrayList<>();
+        this.tracklist = new CopyOnWriteArrayList<>();
     }
     
     public void addSong(Song song) {
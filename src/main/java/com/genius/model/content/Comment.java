@@ -37,6 +37,22 @@ public class Comment {
         this.dislikes = 0;
     }
 
+    /**
+     * Restores a previously stored Comment together with its votes.
+     *
+     * @param user     The user who made the comment
+     * @param text     The content of the comment
+     * @param date     The date when the comment was made
+     * @param likes    The stored like count
+     * @param dislikes The stored dislike count
+     * @throws IllegalArgumentException if user or text is null, or text is empty
+     */
+    public Comment(User user, String text, Date date, int likes, int dislikes) {
+        this(user, text, date);
+        this.likes = Math.max(likes, 0);
+        this.dislikes = Math.max(dislikes, 0);
+    }
+
     /**
      * Gets the user who made the comment.
      *
@@ -28,6 +28,18 @@ public class LyricEdit {
         this.rejected = false;
     }
 
+    // Restores a stored edit including its review state
+    public LyricEdit(User suggestedBy, Song song, String originalLyrics,
+                    String proposedLyrics, String explanation, Date suggestedDate,
+                    boolean approved, boolean rejected, Artist reviewedBy, String rejectionReason) {
+        this(suggestedBy, song, originalLyrics, proposedLyrics, explanation);
+        this.suggestedDate = suggestedDate != null ? suggestedDate : new Date();
+        this.approved = approved;
+        this.rejected = rejected;
+        this.reviewedBy = reviewedBy;
+        this.rejectionReason = rejectionReason;
+    }
+
     public void approve(Artist artist) {
         this.approved = true;
         this.reviewedBy = artist;
@@ -45,6 +57,7 @@ public class LyricEdit {
     public String getOriginalLyrics() { return originalLyrics; }
     public String getProposedLyrics() { return proposedLyrics; }
     public String getExplanation() { return explanation; }
+    public Date getSuggestedDate() { return suggestedDate; }
     public boolean isApproved() { return approved; }
     public boolean isRejected() { return rejected; }
     public Artist getReviewedBy() { return reviewedBy; }
@@ -2,25 +2,46 @@ package com.genius.model.content;
 
 import com.genius.model.accounts.Artist;
 import com.genius.model.enums.Genre;
+import com.genius.util.LyricsStore;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class Song {
 
+    /** Set when Genius has no lyrics for the song, e.g. an instrumental; unlike the other placeholders it is final */
+    public static final String NO_LYRICS = "Lyrics not available";
+    // Shown in place of the lyrics while they are fetched, or when there are none
+    private static final Set<String> PLACEHOLDER_LYRICS = Set.of(
+            "Loading lyrics...", NO_LYRICS, "Error loading lyrics", "Could not load lyrics");
+
+    // Catalog id assigned by the Database when the song is stored; -1 until then
+    private int id = -1;
     private Integer geniusId;
 
     private String thumbnailUrl;
     private String title;
-    private String lyrics;
+    // Null once the text has moved into lyricsStore; lyricsHandle then locates it
+    private volatile String lyrics;
+    private volatile LyricsStore lyricsStore;
+    private volatile long lyricsHandle = LyricsStore.NO_HANDLE;
+    // Told about every lyrics change once the song is stored, e.g. to re-index it
+    private volatile Consumer<Song> lyricsListener;
+    // Set while a fetch of the lyrics is queued or running; completed by the next setLyrics
+    private CompletableFuture<String> pendingLyrics;
     private List<Artist> artists;
     private Album album;
     private Genre genre;
     private List<String> tags;
-    private int views;
+    private final AtomicInteger views = new AtomicInteger();
     private Date releaseDate;
     private List<Comment> comments;
 
@@ -38,8 +59,7 @@ public class Song {
         this.releaseDate = new Date(releaseDate.getTime());
         this.geniusId = geniusId;
         this.thumbnailUrl = thumbnailUrl;
-        this.views = 0;
-        this.comments = new ArrayList<>();
+        this.comments = new CopyOnWriteArrayList<>();
     }
 
     private String validateTitle(String title) {
@@ -89,20 +109,58 @@ public class Song {
     }
 
 
-    public int getViews() { return views; }
+    /**
+     * @return Whether the text is a status message shown instead of lyrics, e.g. "Loading lyrics..."
+     */
+    public static boolean isPlaceholderLyrics(String lyrics) {
+        return lyrics != null && PLACEHOLDER_LYRICS.contains(lyrics);
+    }
+
+    /**
+     * @return Whether the text is a placeholder that fetching the lyrics again may replace
+     */
+    public static boolean isPendingLyrics(String lyrics) {
+        return isPlaceholderLyrics(lyrics) && !NO_LYRICS.equals(lyrics);
+    }
+
+    public int getViews() { return views.get(); }
     public void setViews(int views) {
         if (views >= 0) {
-            this.views = views;
+            this.views.set(views);
         }
     }
 
+    /**
+     * Counts one more view. Safe to call from several threads at once.
+     *
+     * @return The new view count
+     */
+    public int incrementViews() { return views.incrementAndGet(); }
+
     // Getters and setters
     public String getTitle() { return title; }
-    public String getLyrics() { return lyrics; }
+    public String getLyrics() {
+        String inline = lyrics;
+        if (inline != null) {
+            return inline;
+        }
+        LyricsStore store = lyricsStore;
+        return store != null ? store.get(lyricsHandle) : "";
+    }
+
+    /**
+     * @return Handle of the lyrics in the attached store, or {@link LyricsStore#NO_HANDLE}
+     *         while they are still held on the heap
+     */
+    public long getLyricsHandle() {
+        return lyrics == null ? lyricsHandle : LyricsStore.NO_HANDLE;
+    }
     public List<Artist> getArtists() { return Collections.unmodifiableList(artists); }    public Album getAlbum() { return album; }
     public Genre getGenre() { return genre; }
     public List<String> getTags() { return new ArrayList<>(tags); }
     public Integer getGeniusId() { return geniusId; }
+    public String getApiPath() { return apiPath; }
+    public int getId() { return id; }
     public Date getReleaseDate() { return releaseDate; }
     public List<Comment> getComments() { return new ArrayList<>(comments); }
 
@@ -111,9 +169,95 @@ public class Song {
     }
 
 
+    public void setId(int id) { this.id = id; }
     public void setAlbum(Album album) { this.album = album; }
+    public void setApiPath(String apiPath) { this.apiPath = apiPath; }
+    public void addComment(Comment comment) {
+        if (comment != null) {
+            comments.add(comment);
+        }
+    }
     public void setLyrics(String lyrics) {
-        this.lyrics = lyrics != null ? lyrics : "";
+        String text = lyrics != null ? lyrics : "";
+        CompletableFuture<String> pending;
+        synchronized (this) {
+            writeLyrics(text);
+            pending = pendingLyrics;
+            pendingLyrics = null;
+        }
+        // Outside the monitor, so the listener may take its own locks in any order
+        Consumer<Song> listener = lyricsListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
+        if (pending != null) {
+            pending.complete(text);
+        }
+    }
+
+    /**
+     * Marks the lyrics as being fetched, so {@link #getLyricsFuture()} waits for them.
+     */
+    public synchronized void expectLyrics() {
+        if (pendingLyrics == null) {
+            pendingLyrics = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * @return Completes with the lyrics the pending fetch stores, or at once with the
+     *         current lyrics if none is pending
+     */
+    public CompletableFuture<String> getLyricsFuture() {
+        CompletableFuture<String> pending;
+        synchronized (this) {
+            pending = pendingLyrics;
+        }
+        // A copy, so callers cannot complete the shared future themselves
+        return pending != null ? pending.copy() : CompletableFuture.completedFuture(getLyrics());
+    }
+
+    public void setLyricsListener(Consumer<Song> listener) {
+        this.lyricsListener = listener;
+    }
+
+    // Callers hold the song's monitor
+    private void writeLyrics(String text) {
+        LyricsStore store = lyricsStore;
+        if (store != null) {
+            try {
+                lyricsHandle = store.put(text);
+                this.lyrics = null;
+                return;
+            } catch (IOException e) {
+                System.err.println("Error storing lyrics: " + e.getMessage());
+            }
+        }
+        this.lyrics = text;
+    }
+
+    /**
+     * Moves the lyrics into the store, keeping only a handle on the heap.
+     * Later calls to {@link #setLyrics(String)} write to the same store.
+     *
+     * @param store The store to keep the lyrics in
+     */
+    public synchronized void storeLyricsIn(LyricsStore store) {
+        if (lyricsStore == store) {
+            return;
+        }
+        String text = getLyrics();
+        lyricsStore = store;
+        writeLyrics(text);
+    }
+
+    /**
+     * Points the song at lyrics that are already in the store, e.g. when loading a snapshot.
+     */
+    public synchronized void restoreLyrics(LyricsStore store, long handle) {
+        lyricsStore = store;
+        lyricsHandle = handle;
+        lyrics = null;
     }
     // In Song.java
     @Override
@@ -130,6 +274,6 @@ public class Song {
                 title,
                 artistNames.toString(),
                 genre.toString(),
-                views);
+                views.get());
     }
 }
\ No newline at end of file
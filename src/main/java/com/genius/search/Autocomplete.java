@@ -0,0 +1,310 @@
+package com.genius.search;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Song;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead completions for song titles and artist names, weighted by views.
+ *
+ * <p>Names are kept in a radix trie: each edge carries a run of characters, so
+ * names that share a prefix share its nodes. Every node records the highest
+ * weight below it and keeps its children and names ordered by weight, so
+ * {@link #suggest(String, int)} can walk the trie best-first, looking at a
+ * sibling only once everything heavier has been taken, and stop after k
+ * completions instead of visiting every name under the prefix. Weights are taken
+ * when a name is added; an artist's weight grows as songs are added for them.
+ * Thread-safe.</p>
+ */
+public class Autocomplete {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<Artist, Entry> artists = new IdentityHashMap<>();
+
+    private static final class Entry {
+        final String key;
+        final String text;
+        final Suggestion.Type type;
+        long weight;
+
+        Entry(String key, String text, Suggestion.Type type, long weight) {
+            this.key = key;
+            this.text = text;
+            this.type = type;
+            this.weight = weight;
+        }
+    }
+
+    // Children and entries are both kept heaviest first
+    private static final class Node {
+        String edge;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        Entry[] entries = NO_ENTRIES;
+        int entryCount;
+        long maxWeight = -1;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+
+        // Index of the child whose edge starts with c, or -1; fan-out is small enough to scan
+        int find(char c) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].edge.charAt(0) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void addChild(Node child) {
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+            }
+            children[childCount] = child;
+            promoteChild(childCount++);
+        }
+
+        // Moves a child whose weight has grown ahead of any lighter siblings
+        void promoteChild(int index) {
+            Node child = children[index];
+            while (index > 0 && children[index - 1].maxWeight < child.maxWeight) {
+                children[index] = children[index - 1];
+                index--;
+            }
+            children[index] = child;
+        }
+
+        void addEntry(Entry entry) {
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(1, entryCount * 2));
+            }
+            entries[entryCount] = entry;
+            promoteEntry(entryCount++);
+        }
+
+        void promoteEntry(int index) {
+            Entry entry = entries[index];
+            while (index > 0 && entries[index - 1].weight < entry.weight) {
+                entries[index] = entries[index - 1];
+                index--;
+            }
+            entries[index] = entry;
+        }
+    }
+
+    // Position in a node's children or entries; everything before it has been taken
+    private static final class Cursor {
+        final Node node;
+        final int index;
+        final boolean entries;
+
+        Cursor(Node node, int index, boolean entries) {
+            this.node = node;
+            this.index = index;
+            this.entries = entries;
+        }
+
+        long weight() {
+            return entries ? node.entries[index].weight : node.children[index].maxWeight;
+        }
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    /**
+     * Adds the song's title, weighted by its views, and credits the views to its artists.
+     */
+    public void addSong(Song song) {
+        String key = keyOf(song.getTitle());
+        long views = song.getViews();
+        lock.writeLock().lock();
+        try {
+            if (!key.isEmpty()) {
+                insert(new Entry(key, song.getTitle(), Suggestion.Type.SONG, views));
+            }
+            if (views > 0) {
+                for (Artist artist : song.getArtists()) {
+                    Entry entry = artists.get(artist);
+                    if (entry != null) {
+                        entry.weight += views;
+                        raise(entry);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the artist's name, weighted by the views of the songs already credited to them.
+     */
+    public void addArtist(Artist artist) {
+        String key = keyOf(artist.getName());
+        if (key.isEmpty()) {
+            return;
+        }
+        long views = 0;
+        for (Song song : artist.getSongs()) {
+            views += song.getViews();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!artists.containsKey(artist)) {
+                Entry entry = new Entry(key, artist.getName(), Suggestion.Type.ARTIST, views);
+                artists.put(artist, entry);
+                insert(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param prefix What has been typed so far; case, accents and punctuation are ignored
+     * @param limit  Maximum number of completions
+     * @return The heaviest titles and names starting with the prefix, heaviest first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = keyOf(prefix);
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (limit <= 0) {
+            return suggestions;
+        }
+
+        lock.readLock().lock();
+        try {
+            Node start = find(key);
+            if (start == null) {
+                return suggestions;
+            }
+            // Each cursor offers the heaviest item not yet taken from its node
+            PriorityQueue<Cursor> frontier = new PriorityQueue<>(
+                    (a, b) -> Long.compare(b.weight(), a.weight()));
+            expand(start, frontier);
+            while (!frontier.isEmpty() && suggestions.size() < limit) {
+                Cursor next = frontier.poll();
+                int following = next.index + 1;
+                if (following < (next.entries ? next.node.entryCount : next.node.childCount)) {
+                    frontier.add(new Cursor(next.node, following, next.entries));
+                }
+                if (next.entries) {
+                    Entry entry = next.node.entries[next.index];
+                    suggestions.add(new Suggestion(entry.text, entry.type, entry.weight));
+                } else {
+                    expand(next.node.children[next.index], frontier);
+                }
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void expand(Node node, PriorityQueue<Cursor> frontier) {
+        if (node.entryCount > 0) {
+            frontier.add(new Cursor(node, 0, true));
+        }
+        if (node.childCount > 0) {
+            frontier.add(new Cursor(node, 0, false));
+        }
+    }
+
+    // Normalized words joined by single spaces, so "AC/DC" and "ac dc" complete alike
+    private static String keyOf(String text) {
+        return String.join(" ", Tokenizer.tokens(text));
+    }
+
+    private void insert(Entry entry) {
+        String key = entry.key;
+        Node node = root;
+        node.maxWeight = Math.max(node.maxWeight, entry.weight);
+        int position = 0;
+        while (position < key.length()) {
+            int index = node.find(key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position));
+                leaf.addEntry(entry);
+                leaf.maxWeight = entry.weight;
+                node.addChild(leaf);
+                return;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.edge, key, position);
+            if (common < child.edge.length()) {
+                // Split the edge so the shared part becomes its own node
+                Node middle = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                middle.addChild(child);
+                middle.maxWeight = child.maxWeight;
+                node.children[index] = middle;
+                child = middle;
+            }
+            if (entry.weight > child.maxWeight) {
+                child.maxWeight = entry.weight;
+                node.promoteChild(index);
+            }
+            node = child;
+            position += common;
+        }
+        node.addEntry(entry);
+    }
+
+    // Propagates an increased entry weight to every node on its path
+    private void raise(Entry entry) {
+        Node node = root;
+        node.maxWeight = Math.max(node.maxWeight, entry.weight);
+        int position = 0;
+        while (position < entry.key.length()) {
+            int index = node.find(entry.key.charAt(position));
+            Node child = node.children[index];
+            if (entry.weight > child.maxWeight) {
+                child.maxWeight = entry.weight;
+                node.promoteChild(index);
+            }
+            node = child;
+            position += node.edge.length();
+        }
+        for (int i = 0; i < node.entryCount; i++) {
+            if (node.entries[i] == entry) {
+                node.promoteEntry(i);
+                break;
+            }
+        }
+    }
+
+    // The node at or just below the end of the prefix, or null if no name starts with it
+    private Node find(String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.find(prefix.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            int length = Math.min(child.edge.length(), prefix.length() - position);
+            if (!child.edge.regionMatches(0, prefix, position, length)) {
+                return null;
+            }
+            position += length;
+            node = child;
+        }
+        return node;
+    }
+
+    private static int commonPrefix(String edge, String key, int offset) {
+        int limit = Math.min(edge.length(), key.length() - offset);
+        int i = 0;
+        while (i < limit && edge.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,380 @@
+package com.genius.search;
+
+import com.genius.model.content.Song;
+import com.genius.util.IntHashMap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Positional inverted index over song lyrics.
+ *
+ * <p>For every token it keeps the songs containing it and, per song, the token
+ * positions where it occurs. That answers exact phrase queries and "these words
+ * near each other" queries from the postings alone, and maps a match back to its
+ * line without reading the lyrics. The same postings give the term and length
+ * statistics for BM25 ranking. Thread-safe: queries share a read lock and
+ * updates take the write lock.</p>
+ */
+public class LyricsIndex {
+    // Words within this many positions of each other count as near by default
+    public static final int DEFAULT_PROXIMITY = 8;
+
+    private static final Pattern LINE_BREAK = Pattern.compile("\r?\n");
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, TermPostings> terms = new HashMap<>();
+    private final IntHashMap<Document> documents = new IntHashMap<>();
+    private long totalLength;
+
+    /**
+     * A song and position where a query matched.
+     */
+    public static final class Hit {
+        public final int songId;
+        public final int lineNumber;
+
+        Hit(int songId, int lineNumber) {
+            this.songId = songId;
+            this.lineNumber = lineNumber;
+        }
+    }
+
+    /**
+     * Indexes many songs at once, tokenizing their lyrics in parallel.
+     * Intended for building the index after the catalog is loaded, while updates
+     * may already be coming in: a song that {@link #update(Song)} indexed meanwhile
+     * is skipped, since the update read lyrics at least as new as the ones parsed here.
+     */
+    public void addAll(Collection<Song> songs) {
+        List<Document> parsed = songs.parallelStream()
+                .map(LyricsIndex::parse)
+                .toList();
+        lock.writeLock().lock();
+        try {
+            for (Document document : parsed) {
+                if (documents.get(document.songId) == null) {
+                    insert(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the song's current lyrics, replacing whatever was indexed for it before.
+     * Placeholder text such as "Loading lyrics..." only removes the old postings.
+     * The lyrics are read and parsed under the write lock, so of two racing updates
+     * the later one always installs the newer lyrics.
+     */
+    public void update(Song song) {
+        lock.writeLock().lock();
+        try {
+            insert(parse(song));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query: text in double quotes is an exact phrase, anything else
+     * matches when all its words occur within {@link #DEFAULT_PROXIMITY} positions.
+     *
+     * @param query A remembered lyric, e.g. "\"shake it off\"" or "players gonna play"
+     * @param limit Maximum number of songs to return
+     * @return At most one hit per song, in catalog id order
+     */
+    public List<Hit> search(String query, int limit) {
+        String trimmed = query != null ? query.trim() : "";
+        if (trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return searchPhrase(trimmed.substring(1, trimmed.length() - 1), limit);
+        }
+        return searchNear(trimmed, DEFAULT_PROXIMITY, limit);
+    }
+
+    /**
+     * Finds songs containing the words of the phrase consecutively and in order.
+     */
+    public List<Hit> searchPhrase(String phrase, int limit) {
+        return match(Tokenizer.tokens(phrase), limit, LyricsIndex::phraseStart, 0);
+    }
+
+    /**
+     * Finds songs containing every word, in any order, with all of them inside a
+     * window of the given number of positions.
+     */
+    public List<Hit> searchNear(String words, int window, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokens(words)));
+        return match(tokens, limit, LyricsIndex::windowStart, window);
+    }
+
+    /**
+     * Adds the BM25 score of the lyrics of every song containing one of the tokens.
+     *
+     * @param tokens Distinct query tokens
+     * @param ranker Collects the scores for the query
+     */
+    public void score(Collection<String> tokens, SongRanker ranker) {
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double averageLength = documentCount > 0 ? (double) totalLength / documentCount : 0;
+            for (String token : tokens) {
+                TermPostings postings = terms.get(token);
+                if (postings == null) {
+                    continue;
+                }
+                ranker.reserve(postings.size);
+                double idf = SongRanker.idf(documentCount, postings.size);
+                for (int i = 0; i < postings.size; i++) {
+                    int songId = postings.songIds[i];
+                    ranker.add(songId, SongRanker.LYRICS_WEIGHT, idf,
+                            postings.positions[i].length, documents.get(songId).length, averageLength);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The given zero-based line of the lyrics, trimmed, or an empty string
+     */
+    public static String line(String lyrics, int lineNumber) {
+        String[] lines = LINE_BREAK.split(lyrics != null ? lyrics : "", -1);
+        return lineNumber >= 0 && lineNumber < lines.length ? lines[lineNumber].trim() : "";
+    }
+
+    @FunctionalInterface
+    private interface Matcher {
+        // Returns the position where the match starts, or -1
+        int find(int[][] positions, int window);
+    }
+
+    private List<Hit> match(List<String> tokens, int limit, Matcher matcher, int window) {
+        List<Hit> hits = new ArrayList<>();
+        if (tokens.isEmpty() || limit <= 0) {
+            return hits;
+        }
+
+        lock.readLock().lock();
+        try {
+            TermPostings[] postings = new TermPostings[tokens.size()];
+            for (int i = 0; i < postings.length; i++) {
+                postings[i] = terms.get(tokens.get(i));
+                if (postings[i] == null) {
+                    return hits;
+                }
+            }
+
+            int[][] positions = new int[postings.length][];
+            for (int songId : candidates(postings)) {
+                for (int i = 0; i < postings.length; i++) {
+                    positions[i] = postings[i].positionsOf(songId);
+                }
+                int start = matcher.find(positions, window);
+                if (start >= 0) {
+                    hits.add(new Hit(songId, documents.get(songId).lineOf(start)));
+                    if (hits.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Songs that contain every term, rarest term first so the candidate set starts small
+    private static int[] candidates(TermPostings[] postings) {
+        TermPostings[] sorted = postings.clone();
+        Arrays.sort(sorted, Comparator.comparingInt(p -> p.size));
+        int[] result = Arrays.copyOf(sorted[0].songIds, sorted[0].size);
+        int resultSize = result.length;
+        for (int i = 1; i < sorted.length; i++) {
+            int kept = 0;
+            for (int j = 0; j < resultSize; j++) {
+                if (sorted[i].indexOf(result[j]) >= 0) {
+                    result[kept++] = result[j];
+                }
+            }
+            resultSize = kept;
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    private static int phraseStart(int[][] positions, int window) {
+        for (int start : positions[0]) {
+            boolean matches = true;
+            for (int i = 1; i < positions.length && matches; i++) {
+                matches = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (matches) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    // Smallest window holding one occurrence of every term: advance whichever pointer is furthest behind
+    private static int windowStart(int[][] positions, int window) {
+        int[] cursor = new int[positions.length];
+        while (true) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minList = 0;
+            for (int i = 0; i < positions.length; i++) {
+                int position = positions[i][cursor[i]];
+                if (position < min) {
+                    min = position;
+                    minList = i;
+                }
+                max = Math.max(max, position);
+            }
+            if (max - min < window) {
+                return min;
+            }
+            if (++cursor[minList] == positions[minList].length) {
+                return -1;
+            }
+        }
+    }
+
+    private static Document parse(Song song) {
+        String lyrics = song.getLyrics();
+        return Document.parse(song.getId(), Song.isPlaceholderLyrics(lyrics) ? "" : lyrics);
+    }
+
+    private void insert(Document document) {
+        Document previous = documents.get(document.songId);
+        if (previous != null) {
+            for (String term : previous.terms) {
+                TermPostings postings = terms.get(term);
+                if (postings != null && postings.remove(previous.songId) && postings.size == 0) {
+                    terms.remove(term);
+                }
+            }
+            totalLength -= previous.length;
+        }
+        totalLength += document.length;
+        for (Map.Entry<String, int[]> entry : document.positions.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), key -> new TermPostings())
+                    .put(document.songId, entry.getValue());
+        }
+        documents.put(document.songId, document.withoutPositions());
+    }
+
+    /**
+     * Tokens of one song's lyrics with their positions, and where each line starts.
+     */
+    private static final class Document {
+        final int songId;
+        // Null once inserted, as the postings then own the positions
+        final Map<String, int[]> positions;
+        final String[] terms;
+        // Position of the first token on each line
+        final int[] lineStarts;
+        // Number of tokens
+        final int length;
+
+        private Document(int songId, Map<String, int[]> positions, String[] terms, int[] lineStarts, int length) {
+            this.songId = songId;
+            this.positions = positions;
+            this.terms = terms;
+            this.lineStarts = lineStarts;
+            this.length = length;
+        }
+
+        static Document parse(int songId, String lyrics) {
+            String[] lines = LINE_BREAK.split(lyrics != null ? lyrics : "", -1);
+            Map<String, int[]> positions = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            int[] lineStarts = new int[lines.length];
+            int position = 0;
+            for (int line = 0; line < lines.length; line++) {
+                lineStarts[line] = position;
+                for (String token : Tokenizer.tokens(lines[line])) {
+                    int[] list = positions.getOrDefault(token, NO_POSITIONS);
+                    int count = counts.getOrDefault(token, 0);
+                    if (count == list.length) {
+                        list = Arrays.copyOf(list, Math.max(4, count * 2));
+                        positions.put(token, list);
+                    }
+                    list[count] = position++;
+                    counts.put(token, count + 1);
+                }
+            }
+            positions.replaceAll((token, list) -> Arrays.copyOf(list, counts.get(token)));
+            return new Document(songId, positions, positions.keySet().toArray(new String[0]), lineStarts, position);
+        }
+
+        // Keeps only what removal and line lookup need
+        Document withoutPositions() {
+            return new Document(songId, null, terms, lineStarts, length);
+        }
+
+        int lineOf(int position) {
+            int low = 0;
+            int high = lineStarts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (lineStarts[mid] <= position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return Math.max(low - 1, 0);
+        }
+    }
+
+    /**
+     * Songs containing one term, sorted by id, with the term's positions in each.
+     */
+    private static final class TermPostings {
+        int[] songIds = new int[2];
+        int[][] positions = new int[2][];
+        int size;
+
+        int indexOf(int songId) {
+            return Arrays.binarySearch(songIds, 0, size, songId);
+        }
+
+        int[] positionsOf(int songId) {
+            return positions[indexOf(songId)];
+        }
+
+        void put(int songId, int[] songPositions) {
+            int index = size > 0 && songIds[size - 1] >= songId ? indexOf(songId) : -size - 1;
+            if (index >= 0) {
+                positions[index] = songPositions;
+                return;
+            }
+            index = -index - 1;
+            if (size == songIds.length) {
+                songIds = Arrays.copyOf(songIds, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            System.arraycopy(songIds, index, songIds, index + 1, size - index);
+            System.arraycopy(positions, index, positions, index + 1, size - index);
+            songIds[index] = songId;
+            positions[index] = songPositions;
+            size++;
+        }
+
+        boolean remove(int songId) {
+            int index = indexOf(songId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(songIds, index + 1, songIds, index, size - index - 1);
+            System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+            positions[--size] = null;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.genius.search;
+
+import com.genius.model.content.Song;
+
+/**
+ * A song whose lyrics matched a query, with the line the match starts on.
+ */
+public class LyricsMatch {
+    private final Song song;
+    private final int lineNumber;
+    private final String snippet;
+
+    public LyricsMatch(Song song, int lineNumber, String snippet) {
+        this.song = song;
+        this.lineNumber = lineNumber;
+        this.snippet = snippet;
+    }
+
+    public Song getSong() { return song; }
+
+    /**
+     * @return Zero-based line of the lyrics where the match starts
+     */
+    public int getLineNumber() { return lineNumber; }
+    public String getSnippet() { return snippet; }
+
+    @Override
+    public String toString() {
+        return song.getTitle() + ": \"" + snippet + "\"";
+    }
+}
@@ -0,0 +1,143 @@
+package com.genius.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of song ids backed by a growable int array.
+ * Ids normally arrive in increasing order, which makes adding one an append.
+ * Each id may carry an int payload such as a term frequency.
+ * Not thread-safe.
+ */
+public class PostingList {
+    private int[] ids = new int[4];
+    // Parallel to ids; allocated when the first non-zero payload is added
+    private int[] payloads;
+    private int size;
+
+    /**
+     * Adds the id, keeping the list sorted and free of duplicates.
+     */
+    public void add(int id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            insertAt(-index - 1, id, 0);
+            return;
+        }
+        insertAt(size, id, 0);
+    }
+
+    /**
+     * Adds the id with a payload; an id already present keeps its place and takes the new payload.
+     */
+    public void add(int id, int payload) {
+        int index = size;
+        if (size > 0 && ids[size - 1] >= id) {
+            index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                if (payloads == null) {
+                    payloads = new int[ids.length];
+                }
+                payloads[index] = payload;
+                return;
+            }
+            index = -index - 1;
+        }
+        insertAt(index, id, payload);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return The payload of the id at the index, or 0 if none was given
+     */
+    public int payload(int index) {
+        return payloads != null ? payloads[index] : 0;
+    }
+
+    /**
+     * @return A copy of the ids in increasing order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * Intersects sorted id arrays. Walks the shortest one and gallops through the
+     * others, so the cost follows the rarest term rather than the most common one.
+     *
+     * @return The ids present in every list, in increasing order
+     */
+    public static int[] intersect(PostingList... lists) {
+        if (lists.length == 0) {
+            return new int[0];
+        }
+        PostingList[] sorted = lists.clone();
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] result = sorted[0].toArray();
+        int resultSize = result.length;
+        for (int i = 1; i < sorted.length && resultSize > 0; i++) {
+            PostingList other = sorted[i];
+            int kept = 0;
+            int from = 0;
+            for (int j = 0; j < resultSize; j++) {
+                from = other.seek(result[j], from);
+                if (from == other.size) {
+                    break;
+                }
+                if (other.ids[from] == result[j]) {
+                    result[kept++] = result[j];
+                }
+            }
+            resultSize = kept;
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    // Index of the first id >= target at or after from, using exponential then binary search
+    private int seek(int target, int from) {
+        int bound = 1;
+        while (from + bound < size && ids[from + bound] < target) {
+            bound <<= 1;
+        }
+        int low = from + (bound >> 1);
+        int high = Math.min(from + bound, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void insertAt(int index, int id, int payload) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            if (payloads != null) {
+                payloads = Arrays.copyOf(payloads, ids.length);
+            }
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        if (payloads == null && payload != 0) {
+            payloads = new int[ids.length];
+        }
+        if (payloads != null) {
+            System.arraycopy(payloads, index, payloads, index + 1, size - index);
+            payloads[index] = payload;
+        }
+        size++;
+    }
+}
@@ -0,0 +1,75 @@
+package com.genius.search;
+
+import com.genius.model.content.Song;
+
+import java.util.*;
+
+/**
+ * Merges the legs of a combined search as each one finishes, dropping songs
+ * whose title and first artist were already seen.
+ *
+ * <p>Legs may arrive in any order; a song found by several legs is listed once,
+ * under the leg that comes first in {@link SongSearchResult.Source}, so the
+ * result does not depend on which leg was fastest. Once {@link #finish()} has
+ * been called, later legs are ignored. Thread-safe.</p>
+ */
+public class SearchMerger {
+    private final Map<String, Ranked> songsByKey = new HashMap<>();
+    private final Set<SongSearchResult.Source> sources = EnumSet.noneOf(SongSearchResult.Source.class);
+    private int sequence;
+    private boolean finished;
+
+    private static final class Ranked {
+        final Song song;
+        final int source;
+        final int sequence;
+
+        Ranked(Song song, int source, int sequence) {
+            this.song = song;
+            this.source = source;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Adds a finished leg.
+     *
+     * @param source The leg the songs came from
+     * @param songs  The leg's results, best first
+     * @return false if the search has already finished and the leg was left out
+     */
+    public synchronized boolean offer(SongSearchResult.Source source, List<Song> songs) {
+        if (finished) {
+            return false;
+        }
+        for (Song song : songs) {
+            if (song == null) {
+                continue;
+            }
+            Ranked ranked = new Ranked(song, source.ordinal(), sequence++);
+            songsByKey.merge(key(song), ranked, (kept, offered) -> offered.source < kept.source ? offered : kept);
+        }
+        sources.add(source);
+        return true;
+    }
+
+    /**
+     * Closes the merge and lists every song once, grouped by leg.
+     */
+    public synchronized SongSearchResult finish() {
+        finished = true;
+        List<Ranked> ranked = new ArrayList<>(songsByKey.values());
+        ranked.sort(Comparator.<Ranked>comparingInt(r -> r.source).thenComparingInt(r -> r.sequence));
+        List<Song> songs = new ArrayList<>(ranked.size());
+        for (Ranked r : ranked) {
+            songs.add(r.song);
+        }
+        return new SongSearchResult(songs, sources);
+    }
+
+    // Title plus first artist, the same song as far as a result list is concerned
+    private static String key(Song song) {
+        String artist = song.getArtists().isEmpty() ? "" : song.getArtists().get(0).getName();
+        return song.getTitle().toLowerCase() + "-" + (artist != null ? artist.toLowerCase() : "");
+    }
+}
@@ -0,0 +1,204 @@
+package com.genius.search;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Song;
+
+import java.util.*;
+
+/**
+ * Inverted index from title and artist name tokens to song catalog ids.
+ * Each posting carries the token's frequency in the title and in the artist
+ * names, so the postings give the BM25 statistics for ranked search. The term
+ * dictionary is also kept in a {@link TermDictionary} for typo-tolerant lookups.
+ * Lookups cost time in proportion to the matching posting lists, not to the size
+ * of the catalog.
+ * Not thread-safe; the Database guards it with the songs stripe.
+ */
+public class SongIndex {
+    private static final int[] NO_MATCHES = new int[0];
+    // A posting's payload holds the title frequency in the low half, the artist frequency in the high half
+    private static final int FREQUENCY_BITS = 16;
+    private static final int FREQUENCY_MASK = (1 << FREQUENCY_BITS) - 1;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final TermDictionary dictionary = new TermDictionary();
+    // Tokens per song in each field, by catalog id
+    private int[] titleLengths = new int[16];
+    private int[] artistLengths = new int[16];
+    private int documentCount;
+    private long totalTitleLength;
+    private long totalArtistLength;
+
+    /**
+     * Indexes a stored song under its catalog id.
+     */
+    public void add(Song song) {
+        List<String> title = Tokenizer.tokens(song.getTitle());
+        List<String> artists = new ArrayList<>();
+        for (Artist artist : song.getArtists()) {
+            artists.addAll(Tokenizer.tokens(artist.getName()));
+        }
+
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        for (String token : title) {
+            frequencies.merge(token, 1, (a, b) -> Math.min(a + b, FREQUENCY_MASK));
+        }
+        for (String token : artists) {
+            frequencies.merge(token, 1 << FREQUENCY_BITS,
+                    (a, b) -> (a >>> FREQUENCY_BITS) < FREQUENCY_MASK ? a + b : a);
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), key -> {
+                dictionary.add(key);
+                return new PostingList();
+            }).add(song.getId(), entry.getValue());
+        }
+        recordLengths(song.getId(), title.size(), artists.size());
+    }
+
+    /**
+     * Adds the BM25 score of the title and artist name fields of every song
+     * containing one of the tokens. Uses only the postings and field lengths.
+     *
+     * @param tokens Distinct query tokens
+     * @param ranker Collects the scores for the query
+     */
+    public void score(Collection<String> tokens, SongRanker ranker) {
+        double averageTitle = documentCount > 0 ? (double) totalTitleLength / documentCount : 0;
+        double averageArtist = documentCount > 0 ? (double) totalArtistLength / documentCount : 0;
+        for (String token : tokens) {
+            PostingList list = postings.get(token);
+            if (list == null) {
+                continue;
+            }
+            int titleFrequency = 0;
+            int artistFrequency = 0;
+            for (int i = 0; i < list.size(); i++) {
+                int payload = list.payload(i);
+                titleFrequency += (payload & FREQUENCY_MASK) != 0 ? 1 : 0;
+                artistFrequency += (payload >>> FREQUENCY_BITS) != 0 ? 1 : 0;
+            }
+            ranker.reserve(list.size());
+            double titleIdf = SongRanker.idf(documentCount, titleFrequency);
+            double artistIdf = SongRanker.idf(documentCount, artistFrequency);
+            for (int i = 0; i < list.size(); i++) {
+                int id = list.get(i);
+                int payload = list.payload(i);
+                ranker.add(id, SongRanker.TITLE_WEIGHT, titleIdf,
+                        payload & FREQUENCY_MASK, titleLengths[id], averageTitle);
+                ranker.add(id, SongRanker.ARTIST_WEIGHT, artistIdf,
+                        payload >>> FREQUENCY_BITS, artistLengths[id], averageArtist);
+            }
+        }
+    }
+
+    /**
+     * Finds songs whose title or artist name tokens match every query token within
+     * a few typos, where a typo is an inserted, deleted or replaced character
+     * or two swapped neighbours. Short tokens tolerate fewer typos (at most one up to
+     * five characters), and tokens of one or two characters are optional: they only
+     * improve the ranking of songs that contain them, so "it" or a mistyped "of"
+     * never rules a song out.
+     *
+     * @param query       Free text, possibly misspelled
+     * @param maxDistance Most typos allowed per token
+     * @return Catalog ids of matching songs, most tokens matched and fewest typos first
+     */
+    public int[] searchFuzzy(String query, int maxDistance) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokens(query)));
+        boolean allShort = tokens.stream().allMatch(token -> token.length() <= 2);
+
+        // Song id -> {tokens matched, summed typos}; required tokens narrow the set, optional ones only score
+        Map<Integer, int[]> scores = null;
+        for (String token : tokens) {
+            boolean required = allShort || token.length() > 2;
+            Map<Integer, Integer> best = closestTerms(token, allowedTypos(token, maxDistance));
+            if (scores == null && required) {
+                scores = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : best.entrySet()) {
+                    scores.put(entry.getKey(), new int[]{1, entry.getValue()});
+                }
+            } else if (required) {
+                scores.keySet().retainAll(best.keySet());
+                for (Map.Entry<Integer, int[]> entry : scores.entrySet()) {
+                    entry.getValue()[0]++;
+                    entry.getValue()[1] += best.get(entry.getKey());
+                }
+            }
+            if (scores != null && scores.isEmpty()) {
+                return NO_MATCHES;
+            }
+        }
+        if (scores == null) {
+            return NO_MATCHES;
+        }
+        for (String token : tokens) {
+            if (!allShort && token.length() <= 2) {
+                Map<Integer, Integer> best = closestTerms(token, 0);
+                for (Map.Entry<Integer, int[]> entry : scores.entrySet()) {
+                    if (best.containsKey(entry.getKey())) {
+                        entry.getValue()[0]++;
+                    }
+                }
+            }
+        }
+
+        Map<Integer, int[]> ranking = scores;
+        return ranking.keySet().stream()
+                .sorted(Comparator.<Integer>comparingInt(id -> -ranking.get(id)[0])
+                        .thenComparingInt(id -> ranking.get(id)[1])
+                        .thenComparingInt(Integer::intValue))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Song id -> fewest typos between the token and any of that song's terms
+    private Map<Integer, Integer> closestTerms(String token, int maxTypos) {
+        Map<Integer, Integer> best = new HashMap<>();
+        dictionary.search(token, maxTypos, (term, typos) -> {
+            PostingList list = postings.get(term);
+            for (int i = 0; i < list.size(); i++) {
+                best.merge(list.get(i), typos, Math::min);
+            }
+        });
+        return best;
+    }
+
+    /**
+     * @return Number of songs whose title or artist names contain the token
+     */
+    public int documentFrequency(String token) {
+        PostingList list = postings.get(token);
+        return list != null ? list.size() : 0;
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    public int documentCount() {
+        return documentCount;
+    }
+
+    private static int allowedTypos(String token, int maxDistance) {
+        if (token.length() <= 2) {
+            return 0;
+        }
+        return token.length() <= 5 ? Math.min(1, maxDistance) : maxDistance;
+    }
+
+    private void recordLengths(int id, int titleLength, int artistLength) {
+        if (id >= titleLengths.length) {
+            int capacity = Math.max(titleLengths.length * 2, id + 1);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+            artistLengths = Arrays.copyOf(artistLengths, capacity);
+        }
+        if (titleLengths[id] == 0 && artistLengths[id] == 0) {
+            documentCount++;
+        }
+        totalTitleLength += titleLength - titleLengths[id];
+        totalArtistLength += artistLength - artistLengths[id];
+        titleLengths[id] = titleLength;
+        artistLengths[id] = artistLength;
+    }
+}
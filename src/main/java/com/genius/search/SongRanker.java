@@ -0,0 +1,177 @@
+package com.genius.search;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Collects Okapi BM25 scores for one query and picks the best songs.
+ *
+ * <p>The indexes feed it their statistics field by field (title, artist names,
+ * lyrics), each field weighted by how telling a match in it is. The text score is
+ * then blended with a popularity prior that grows with a song's views but
+ * saturates, so views break ties between similar matches without burying a
+ * better match under a hit. Only the best k candidates are ever held in order.
+ * Not thread-safe; use one per query.</p>
+ */
+public class SongRanker {
+    public static final double TITLE_WEIGHT = 2.0;
+    public static final double ARTIST_WEIGHT = 1.5;
+    public static final double LYRICS_WEIGHT = 1.0;
+
+    // Term frequency saturation and length normalization, the usual BM25 defaults
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Most that views can add to a score; a song with VIEWS_PIVOT views gets half of it
+    private static final double POPULARITY_WEIGHT = 1.0;
+    private static final double VIEWS_PIVOT = 1000;
+
+    // Song id -> text score so far, in an open-addressed table so accumulating never boxes
+    private int[] keys = new int[64];
+    private double[] values = new double[64];
+    private int size;
+
+    {
+        Arrays.fill(keys, -1);
+    }
+
+    /**
+     * Inverse document frequency of a term in one field; rarer terms weigh more.
+     *
+     * @param documentCount     Songs with this field indexed
+     * @param documentFrequency Songs whose field contains the term
+     */
+    public static double idf(int documentCount, int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Adds one term's contribution in one field of one song.
+     *
+     * @param songId        Catalog id of the song
+     * @param fieldWeight   Weight of the field the term occurs in
+     * @param idf           The term's {@link #idf(int, int)} in the field
+     * @param frequency     Occurrences of the term in this song's field
+     * @param length        Tokens in this song's field
+     * @param averageLength Average tokens in the field across songs
+     */
+    public void add(int songId, double fieldWeight, double idf, int frequency, int length, double averageLength) {
+        if (frequency <= 0) {
+            return;
+        }
+        double norm = averageLength > 0 ? length / averageLength : 1;
+        double score = idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * norm));
+        int slot = slot(songId); // May grow the table, so look it up before touching values
+        values[slot] += fieldWeight * score;
+    }
+
+    /**
+     * Makes room for up to this many more candidates, so a long posting list does not rehash repeatedly.
+     */
+    public void reserve(int candidates) {
+        int capacity = keys.length;
+        while ((size + candidates) * 2L >= capacity) {
+            capacity *= 2;
+        }
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    public int candidateCount() {
+        return size;
+    }
+
+    /**
+     * Blends each candidate's text score with its popularity and keeps the best.
+     *
+     * @param limit Maximum number of songs to return
+     * @param views Views of a song by catalog id
+     * @return Catalog ids of the best songs, best first
+     */
+    public int[] top(int limit, IntToLongFunction views) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+        // Min-heap of the best so far: the weakest kept song is always at the head
+        PriorityQueue<Ranked> best = new PriorityQueue<>(limit + 1);
+        for (int i = 0; i < keys.length; i++) {
+            int songId = keys[i];
+            if (songId < 0) {
+                continue;
+            }
+            double score = values[i] + popularity(views.applyAsLong(songId));
+            if (best.size() < limit) {
+                best.add(new Ranked(songId, score));
+            } else if (best.peek().isWorseThan(songId, score)) {
+                best.poll();
+                best.add(new Ranked(songId, score));
+            }
+        }
+
+        int[] ids = new int[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = best.poll().songId;
+        }
+        return ids;
+    }
+
+    // Slot holding the song id, claimed if the id is new
+    private int slot(int songId) {
+        if (size * 2 >= keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = (songId * 0x9E3779B9) >>> 1 & mask;
+        while (keys[slot] != songId) {
+            if (keys[slot] < 0) {
+                keys[slot] = songId;
+                size++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new int[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, -1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] >= 0) {
+                values[slot(oldKeys[i])] = oldValues[i];
+            }
+        }
+    }
+
+    private static double popularity(long views) {
+        return views > 0 ? POPULARITY_WEIGHT * views / (views + VIEWS_PIVOT) : 0;
+    }
+
+    private static final class Ranked implements Comparable<Ranked> {
+        final int songId;
+        final double score;
+
+        Ranked(int songId, double score) {
+            this.songId = songId;
+            this.score = score;
+        }
+
+        // Lower scores are worse; on a tie the later song is
+        boolean isWorseThan(int otherId, double otherScore) {
+            return score < otherScore || score == otherScore && songId > otherId;
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            if (this == other) {
+                return 0;
+            }
+            return isWorseThan(other.songId, other.score) ? -1 : 1;
+        }
+    }
+}
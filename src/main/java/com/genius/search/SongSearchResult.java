@@ -0,0 +1,34 @@
+package com.genius.search;
+
+import com.genius.model.content.Song;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Songs found by a combined search, together with the legs that made it in before the deadline.
+ */
+public class SongSearchResult {
+    /**
+     * The legs of a combined search, in the order their results are listed.
+     */
+    public enum Source { GENIUS, RANKED, LOCAL, FUZZY }
+
+    private final List<Song> songs;
+    private final Set<Source> sources;
+
+    public SongSearchResult(List<Song> songs, Set<Source> sources) {
+        this.songs = Collections.unmodifiableList(songs);
+        this.sources = Collections.unmodifiableSet(sources.isEmpty()
+                ? EnumSet.noneOf(Source.class) : EnumSet.copyOf(sources));
+    }
+
+    public List<Song> getSongs() { return songs; }
+    public Set<Source> getSources() { return sources; }
+
+    public boolean includes(Source source) {
+        return sources.contains(source);
+    }
+}
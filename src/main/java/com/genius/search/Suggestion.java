@@ -0,0 +1,31 @@
+package com.genius.search;
+
+/**
+ * One type-ahead completion: a song title or an artist name.
+ */
+public class Suggestion {
+    public enum Type { SONG, ARTIST }
+
+    private final String text;
+    private final Type type;
+    private final long weight;
+
+    public Suggestion(String text, Type type, long weight) {
+        this.text = text;
+        this.type = type;
+        this.weight = weight;
+    }
+
+    public String getText() { return text; }
+    public Type getType() { return type; }
+
+    /**
+     * @return Views of the song, or of all the artist's songs
+     */
+    public long getWeight() { return weight; }
+
+    @Override
+    public String toString() {
+        return text + " (" + type.name().toLowerCase() + ")";
+    }
+}
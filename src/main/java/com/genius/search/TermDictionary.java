@@ -0,0 +1,135 @@
+package com.genius.search;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Sorted set of index terms that can be searched for terms within a few typos
+ * of a query.
+ *
+ * <p>The search walks the terms in order as if they were a trie, simulating a
+ * Levenshtein automaton: it keeps one edit-distance row per character of the
+ * current term and reuses the rows of the prefix it shares with the previous
+ * term. As soon as a prefix can no longer come within the allowed distance,
+ * every term starting with it is skipped in one step. A typo is an inserted,
+ * deleted or replaced character, or two swapped neighbours.</p>
+ *
+ * Not thread-safe.
+ */
+public class TermDictionary {
+    private final NavigableSet<String> terms = new TreeSet<>();
+
+    public void add(String term) {
+        terms.add(term);
+    }
+
+    public int size() {
+        return terms.size();
+    }
+
+    /**
+     * Calls the consumer with every term within the given number of typos of the
+     * query, and the number of typos.
+     */
+    public void search(String query, int maxTypos, ObjIntConsumer<String> consumer) {
+        if (maxTypos == 0) {
+            if (terms.contains(query)) {
+                consumer.accept(query, 0);
+            }
+            return;
+        }
+
+        int width = query.length() + 1;
+        // rows[i] holds the distances between the first i characters of the term and every prefix of the query
+        int[][] rows = new int[16][];
+        rows[0] = new int[width];
+        for (int j = 0; j < width; j++) {
+            rows[0][j] = j;
+        }
+
+        String previous = "";
+        int validDepth = 0;
+        String term = terms.isEmpty() ? null : terms.first();
+        while (term != null) {
+            int depth = Math.min(commonPrefix(previous, term), validDepth);
+            int deadAt = -1;
+            while (depth < term.length()) {
+                depth++;
+                if (depth >= rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                if (fillRow(rows, depth, term, query, maxTypos)) {
+                    deadAt = depth;
+                    break;
+                }
+            }
+            previous = term;
+            validDepth = depth;
+
+            if (deadAt >= 0) {
+                String successor = successor(term.substring(0, deadAt));
+                term = successor != null ? terms.ceiling(successor) : null;
+                continue;
+            }
+            int distance = rows[term.length()][query.length()];
+            if (distance <= maxTypos) {
+                consumer.accept(term, distance);
+            }
+            term = terms.higher(term);
+        }
+    }
+
+    // Computes rows[depth]; returns true if no term with this prefix can be within maxTypos
+    private static boolean fillRow(int[][] rows, int depth, String term, String query, int maxTypos) {
+        int width = query.length() + 1;
+        int[] above = rows[depth - 1];
+        int[] twoAbove = depth >= 2 ? rows[depth - 2] : null;
+        int[] row = rows[depth];
+        if (row == null || row.length != width) {
+            row = new int[width];
+            rows[depth] = row;
+        }
+
+        char c = term.charAt(depth - 1);
+        row[0] = depth;
+        int rowMin = row[0];
+        for (int j = 1; j < width; j++) {
+            int cost = c == query.charAt(j - 1) ? 0 : 1;
+            int value = Math.min(Math.min(row[j - 1] + 1, above[j] + 1), above[j - 1] + cost);
+            if (twoAbove != null && j >= 2 && c == query.charAt(j - 2) && term.charAt(depth - 2) == query.charAt(j - 1)) {
+                value = Math.min(value, twoAbove[j - 2] + 1);
+            }
+            row[j] = value;
+            rowMin = Math.min(rowMin, value);
+        }
+
+        // A swap can reach back one row, so the row above must also be out of reach
+        int aboveMin = Integer.MAX_VALUE;
+        for (int value : above) {
+            aboveMin = Math.min(aboveMin, value);
+        }
+        return rowMin > maxTypos && aboveMin + 1 > maxTypos;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int limit = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < limit && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // Smallest string greater than every string starting with the prefix, or null if there is none
+    private static String successor(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+}
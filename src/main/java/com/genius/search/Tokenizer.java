@@ -0,0 +1,47 @@
+package com.genius.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits titles, names and queries into normalized search tokens.
+ * Tokens are lower-cased, stripped of accents and apostrophes, and split on
+ * anything that is not a letter or digit, so "Beyoncé's Halo" yields
+ * "beyonces" and "halo".
+ */
+public final class Tokenizer {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern APOSTROPHES = Pattern.compile("['’]");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private Tokenizer() {
+    }
+
+    /**
+     * @return The text lower-cased and without accents or apostrophes
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return APOSTROPHES.matcher(stripped).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The normalized tokens of the text in order, duplicates included
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,126 @@
+package com.genius.search;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Song;
+import com.genius.util.IntHashMap;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Substring search over song titles and artist names.
+ *
+ * <p>Every three-character window of the normalized fields is indexed. A query's
+ * own trigrams then narrow the catalog to songs containing all of them, and only
+ * those candidates are checked with an actual {@code contains}. Trigrams are
+ * hashed into int keys; a collision only adds a candidate that verification
+ * throws out. Queries shorter than three characters have no trigrams and fall
+ * back to checking every song.</p>
+ *
+ * Not thread-safe; the Database guards it with the songs stripe.
+ */
+public class TrigramIndex {
+    private final IntHashMap<PostingList> postings = new IntHashMap<>();
+    private int songCount;
+
+    /**
+     * Indexes a stored song under its catalog id.
+     */
+    public void add(Song song) {
+        addField(song.getId(), song.getTitle());
+        for (Artist artist : song.getArtists()) {
+            addField(song.getId(), artist.getName());
+        }
+        songCount = Math.max(songCount, song.getId() + 1);
+    }
+
+    /**
+     * @param query Free text, matched anywhere in a title or artist name, ignoring case and accents
+     * @param songs Looks up a song by catalog id
+     * @return Catalog ids of matching songs in increasing order
+     */
+    public int[] search(String query, IntFunction<Song> songs) {
+        String needle = Tokenizer.normalize(query);
+        if (needle.isEmpty()) {
+            return new int[0];
+        }
+        int[] candidates = candidates(needle);
+
+        int kept = 0;
+        for (int id : candidates) {
+            Song song = songs.apply(id);
+            if (song != null && matches(song, needle)) {
+                candidates[kept++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, kept);
+    }
+
+    /**
+     * @return Ids of songs that contain every trigram of the normalized query;
+     *         a superset of the real matches
+     */
+    public int[] candidates(String needle) {
+        if (needle.length() < 3) {
+            int[] all = new int[songCount];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        PostingList[] lists = new PostingList[needle.length() - 2];
+        int n = 0;
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            PostingList list = postings.get(key(needle, i));
+            if (list == null) {
+                return new int[0];
+            }
+            if (!contains(lists, n, list)) {
+                lists[n++] = list;
+            }
+        }
+        return PostingList.intersect(Arrays.copyOf(lists, n));
+    }
+
+    private static boolean matches(Song song, String needle) {
+        if (Tokenizer.normalize(song.getTitle()).contains(needle)) {
+            return true;
+        }
+        for (Artist artist : song.getArtists()) {
+            if (Tokenizer.normalize(artist.getName()).contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addField(int songId, String value) {
+        String text = Tokenizer.normalize(value);
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            int key = key(text, i);
+            PostingList list = postings.get(key);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(key, list);
+            }
+            list.add(songId);
+        }
+    }
+
+    private static boolean contains(PostingList[] lists, int size, PostingList list) {
+        for (int i = 0; i < size; i++) {
+            if (lists[i] == list) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Packs three chars into an int; lossy above U+03FF, which verification tolerates
+    private static int key(String text, int start) {
+        return (text.charAt(start) & 0x3FF) << 20
+                | (text.charAt(start + 1) & 0x3FF) << 10
+                | (text.charAt(start + 2) & 0x3FF);
+    }
+}
@@ -7,6 +7,8 @@ import com.genius.model.accounts.User;
 import com.genius.util.Database;
 import com.genius.util.PasswordHasher;
 
+import java.io.IOException;
+
 public class AuthenticationService {
     private Database database;
     
@@ -14,8 +16,12 @@ public class AuthenticationService {
         this.database = database;
     }
     
+    /**
+     * @return The new account, or null if the username is taken
+     * @throws IOException if the account could not be saved to disk
+     */
     public Account register(String username, String password, String name, 
-                           int age, String email, String role) {
+                           int age, String email, String role) throws IOException {
         if (database.getAccountByUsername(username) != null) {
             return null; // Username already exists
         }
@@ -31,12 +37,16 @@ public class AuthenticationService {
                 newAccount = new Artist(username, hashedPassword, name, age, email);
                 // Artist needs admin approval
                 database.addArtistForApproval((Artist) newAccount);
+                database.awaitDurable();
                 return newAccount;
             default:
                 newAccount = new User(username, hashedPassword, name, age, email);
         }
         
-        database.addAccount(newAccount);
+        if (!database.addAccount(newAccount)) {
+            return null; // Username was taken concurrently
+        }
+        database.awaitDurable();
         return newAccount;
     }
     
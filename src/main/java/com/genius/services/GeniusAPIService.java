@@ -1,122 +1,471 @@
 package com.genius.services;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.genius.services.api.GeniusArtist;
+import com.genius.services.api.GeniusDecoder;
+import com.genius.services.api.GeniusSong;
+import com.genius.services.api.Lyrics;
+import com.genius.services.api.LyricsExtractor;
+import com.genius.services.api.SearchHit;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.entity.ContentType;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import org.jsoup.helper.HttpConnection;
 
+import com.genius.util.DiskCache;
+import com.genius.util.ResponseCache;
+import com.genius.util.SingleFlight;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Service for interacting with the Genius API
+ * Service for interacting with the Genius API.
+ *
+ * <p>API calls and lyric page fetches share one pool of keep-alive connections,
+ * so repeated calls to a host reuse open sockets and TLS sessions instead of
+ * handshaking again. The *Async variants run on a thread pool sized to the
+ * per-host connection limit. Responses are decoded as they stream in, keeping
+ * only the fields the application uses.</p>
  */
 
-public class GeniusAPIService {
+public class GeniusAPIService implements Closeable {
 
 
     private static final String API_BASE_URL = "https://api.genius.com";
+    private static final String WEB_BASE_URL = "https://genius.com";
+    // Search and chart responses: fresh for 5 minutes, then served stale for up to 30 more while refreshing
+    private static final long CACHE_TTL_MILLIS = 5 * 60 * 1000;
+    private static final long CACHE_STALE_MILLIS = 30 * 60 * 1000;
+    private static final long CACHE_MAX_BYTES = 8 * 1024 * 1024;
+    private static final long CHART_CACHE_MAX_BYTES = 512 * 1024;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
     private final CloseableHttpClient httpClient;
+    private final ExecutorService asyncExecutor;
     private final String accessToken;
-    private final JsonParser jsonParser;
+    private final HttpSettings settings;
+    // Extracted lyrics by page path; survives restarts. Null when lyrics are not kept on disk
+    private final DiskCache lyricsCache;
+    private final ResponseCache<List<SearchHit>> searchCache = new ResponseCache<>(
+            CACHE_TTL_MILLIS, CACHE_STALE_MILLIS, CACHE_MAX_BYTES, GeniusAPIService::weighHits, List::copyOf);
+    private final ResponseCache<List<GeniusSong>> chartCache = new ResponseCache<>(
+            CACHE_TTL_MILLIS, CACHE_STALE_MILLIS, CHART_CACHE_MAX_BYTES, GeniusAPIService::weighSongs, List::copyOf);
+    // Keyed by URL; API calls and lyric pages never share one
+    private final SingleFlight inFlight = new SingleFlight();
 
     public GeniusAPIService(String accessToken) {
+        this(accessToken, HttpSettings.defaults());
+    }
+
+    public GeniusAPIService(String accessToken, HttpSettings settings) {
+        this(accessToken, settings, null);
+    }
+
+    /**
+     * @param lyricsCache Keeps extracted lyrics on disk so they are scraped once, or null
+     */
+    public GeniusAPIService(String accessToken, HttpSettings settings, DiskCache lyricsCache) {
         this.accessToken = accessToken;
-        this.httpClient = HttpClients.createDefault();
-        this.jsonParser = new JsonParser();
+        this.settings = settings;
+        this.lyricsCache = lyricsCache;
+
+        // Idle connections stay pooled for the keep-alive time; stale ones are checked before reuse
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+                settings.getKeepAliveMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(settings.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(2_000);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(settings.getConnectTimeoutMillis())
+                        .setSocketTimeout(settings.getSocketTimeoutMillis())
+                        .setConnectionRequestTimeout(settings.getRequestTimeoutMillis())
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? serverKeepAlive : settings.getKeepAliveMillis();
+                })
+                // No per-user connection state, so any pooled TLS connection can serve any request
+                .disableConnectionState()
+                .evictExpiredConnections()
+                .build();
+        this.asyncExecutor = Executors.newFixedThreadPool(settings.getMaxPerRoute(), r -> {
+            Thread thread = new Thread(r, "genius-http");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
 
     /**
-     * Search for songs on Genius
+     * Search for artists on Genius
      * @param query Search term
-     * @return JsonObject containing search results
+     * @return Search hits, in Genius's order
      * @throws IOException If API request fails
      */
 
 
-    public JsonObject searchArtists(String query) throws IOException {
-        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+    public List<SearchHit> searchArtists(String query) throws IOException {
+        String encodedQuery = URLEncoder.encode(normalizeQuery(query), StandardCharsets.UTF_8);
         // Specifically search for artists
         String url = API_BASE_URL + "/search?q=" + encodedQuery + "&type=artist&per_page=10";
-        return executeGetRequest(url);
+        return searchCache.get(url, () -> fetch(url, GeniusDecoder::readSearchHits));
     }
 
 
     /**
      * Get detailed information about a specific song
      * @param songId Genius song ID
-     * @return JsonObject containing song details
+     * @return The song, or null if the response had none
      * @throws IOException If API request fails
      */
 
-    public JsonObject getSongDetails(int songId) throws IOException {
+    public GeniusSong getSongDetails(int songId) throws IOException {
         String url = API_BASE_URL + "/songs/" + songId;
-        return executeGetRequest(url);
+        return fetch(url, GeniusDecoder::readSong);
     }
 
+    /**
+     * Get the lyrics of a song, without its section headers
+     * @param path The song's page path, e.g. "/Taylor-swift-shake-it-off-lyrics"
+     * @return The lyric lines; stanzas are separated by a blank line
+     * @throws IOException If the page cannot be fetched
+     */
     public String getLyrics(String path) throws IOException {
-        String lyricsUrl = "https://genius.com" + path;
-        Document doc = Jsoup.connect(lyricsUrl).get();
-        return doc.select("div[data-lyrics-container=true]").stream()
-                .map(e -> e.html()
-                        .replaceAll("<[^>]*>", "")
-                        .replaceAll("\\[.*?\\]", "")
-                        .trim())
-                .filter(line -> !line.isEmpty())
-                .collect(Collectors.joining("\n\n"));
+        return fetchLyrics(path).getText();
+    }
+
+    /**
+     * Like {@link #getLyrics(String)}, but goes to Genius without looking on disk
+     * first; the lyrics are still kept on disk. For callers that have just missed
+     * {@link #getCachedLyrics(String)}.
+     * @param path The song's page path
+     * @return The lyric lines; stanzas are separated by a blank line
+     * @throws IOException If the page cannot be fetched
+     */
+    public String getLyricsUncached(String path) throws IOException {
+        return scrapeLyrics(path).getText();
+    }
+
+    /**
+     * Get the lyrics of a song along with where each section ("[Chorus]"...) starts
+     * @param path The song's page path
+     * @return The lyrics and their section headers
+     * @throws IOException If the page cannot be fetched
+     */
+    public Lyrics getLyricsWithSections(String path) throws IOException {
+        return fetchLyrics(path);
     }
 
     /**
      * Get artist information
      * @param artistId Genius artist ID
-     * @return JsonObject containing artist details
+     * @return The artist, or null if the response had none
      * @throws IOException If API request fails
      */
 
-    public JsonObject getArtistDetails(int artistId) throws IOException {
+    public GeniusArtist getArtistDetails(int artistId) throws IOException {
         String url = API_BASE_URL + "/artists/" + artistId;
-        return executeGetRequest(url);
+        return fetch(url, GeniusDecoder::readArtist);
     }
 
 
-    public JsonObject getChartSongs() throws IOException {
+    public List<GeniusSong> getChartSongs() throws IOException {
         // Use the correct chart endpoint
         String url = API_BASE_URL + "/charts/songs?per_page=10";
-        return executeGetRequest(url);
+        return chartCache.get(url, () -> fetch(url, GeniusDecoder::readChartSongs));
     }
-    public JsonObject search(String query) throws IOException {
-        String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+
+    /**
+     * Search for songs on Genius
+     * @param query Search term
+     * @return Search hits, in Genius's order
+     * @throws IOException If API request fails
+     */
+    public List<SearchHit> search(String query) throws IOException {
+        String encodedQuery = URLEncoder.encode(normalizeQuery(query), StandardCharsets.UTF_8);
         String url = API_BASE_URL + "/search?q=" + encodedQuery + "&per_page=10";
-        HttpGet request = new HttpGet(url);
+        return searchCache.get(url, () -> fetch(url, GeniusDecoder::readSearchHits));
+    }
+
+    public CompletableFuture<List<SearchHit>> searchAsync(String query) {
+        return async(() -> search(query));
+    }
+
+    public CompletableFuture<GeniusSong> getSongDetailsAsync(int songId) {
+        return async(() -> getSongDetails(songId));
+    }
+
+    public CompletableFuture<GeniusArtist> getArtistDetailsAsync(int artistId) {
+        return async(() -> getArtistDetails(artistId));
+    }
+
+    /**
+     * @param path The song's page path
+     * @return The lyrics if they are kept on disk, without going to Genius; otherwise null
+     */
+    public String getCachedLyrics(String path) {
+        Lyrics lyrics = cachedLyrics(path);
+        return lyrics != null ? lyrics.getText() : null;
+    }
+
+    /**
+     * Fetches lyrics without blocking the caller.
+     *
+     * @param path The song's page path, e.g. "/Taylor-swift-shake-it-off-lyrics"
+     * @return Completes with the lyrics, or exceptionally with an UncheckedIOException
+     */
+    public CompletableFuture<String> getLyricsAsync(String path) {
+        return async(() -> getLyrics(path));
+    }
+
+    /**
+     * @return The connection pool and timeout settings this service was created with
+     */
+    public HttpSettings getHttpSettings() {
+        return settings;
+    }
+
+    /**
+     * Closes pooled connections and stops the async threads.
+     */
+    @Override
+    public void close() throws IOException {
+        asyncExecutor.shutdownNow();
+        httpClient.close();
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T run() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode(Reader in) throws IOException;
+    }
+
+    private <T> CompletableFuture<T> async(Call<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, asyncExecutor);
+    }
+
+    /**
+     * @return Hit, miss and eviction counts of the search response cache
+     */
+    public ResponseCache.Stats getCacheStats() {
+        return searchCache.getStats();
+    }
+
+    public ResponseCache.Stats getChartCacheStats() {
+        return chartCache.getStats();
+    }
+
+    /**
+     * @return Hits, misses and size of the on-disk lyrics cache, or null if there is none
+     */
+    public DiskCache.Stats getLyricsCacheStats() {
+        return lyricsCache != null ? lyricsCache.getStats() : null;
+    }
+
+    /**
+     * @return How many requests ran, and how many joined an identical one already running
+     */
+    public SingleFlight.Stats getCoalescingStats() {
+        return inFlight.getStats();
+    }
+
+    /**
+     * @return For each URL that had any, how many requests joined one already running
+     */
+    public Map<String, Long> getCollapsedRequests() {
+        return inFlight.getCollapsedByKey();
+    }
+
+    // Genius search ignores case and extra spaces, so queries differing only in those share a cache entry
+    private static String normalizeQuery(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
 
-        return executeGetRequest(url);
+    private Lyrics fetchLyrics(String path) throws IOException {
+        Lyrics cached = cachedLyrics(path);
+        return cached != null ? cached : scrapeLyrics(path);
+    }
 
+    // Concurrent fetches of one page, e.g. by a background import and an opened song, share one download
+    private Lyrics scrapeLyrics(String path) throws IOException {
+        String url = WEB_BASE_URL + path;
+        return inFlight.execute(url, () -> {
+            Lyrics lyrics = downloadLyrics(url);
+            // A page without lyrics may be a placeholder Genius fills in later, so it is not kept
+            if (lyricsCache != null && !lyrics.getText().isEmpty()) {
+                lyricsCache.put(path, encodeLyrics(lyrics));
+            }
+            return lyrics;
+        });
     }
 
-    private JsonObject executeGetRequest(String url) throws IOException {
-        System.out.println("Making request to: " + url);  // Debug log
+    private Lyrics cachedLyrics(String path) {
+        if (lyricsCache == null) {
+            return null;
+        }
+        byte[] entry = lyricsCache.get(path);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return decodeLyrics(entry);
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable cached lyrics for " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] encodeLyrics(Lyrics lyrics) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(lyrics.getText().length() + 64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        byte[] text = lyrics.getText().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(text.length);
+        out.write(text);
+        out.writeInt(lyrics.getSections().size());
+        for (Lyrics.Section section : lyrics.getSections()) {
+            out.writeUTF(section.getName());
+            out.writeInt(section.getLine());
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Lyrics decodeLyrics(byte[] entry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        byte[] text = new byte[in.readInt()];
+        in.readFully(text);
+        int count = in.readInt();
+        List<Lyrics.Section> sections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sections.add(new Lyrics.Section(in.readUTF(), in.readInt()));
+        }
+        return new Lyrics(new String(text, StandardCharsets.UTF_8), sections);
+    }
+
+    // Extracts the lyrics while the page streams in, without keeping the page
+    private Lyrics downloadLyrics(String url) throws IOException {
+        HttpGet request = new HttpGet(url);
+        request.setHeader("Accept", "text/html");
+        request.setHeader("User-Agent", HttpConnection.DEFAULT_UA); // The same browser agent Jsoup used to send
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode >= 300) {
+                EntityUtils.consume(entity);
+                throw new HttpStatusException("Lyrics page returned status", statusCode);
+            }
+            if (entity == null) {
+                throw new IOException("Empty lyrics page");
+            }
+            Charset charset = ContentType.getOrDefault(entity).getCharset();
+            try (Reader in = new InputStreamReader(entity.getContent(),
+                    charset != null ? charset : StandardCharsets.UTF_8)) {
+                return LyricsExtractor.extract(in, true);
+            }
+        }
+    }
+
+    // Concurrent identical requests, e.g. an import and a search for the same query, share one call
+    private <T> T fetch(String url, Decoder<T> decoder) throws IOException {
+        return inFlight.execute(url, () -> download(url, decoder));
+    }
+
+    // Decodes the body as it arrives; nothing of it is buffered or logged
+    private <T> T download(String url, Decoder<T> decoder) throws IOException {
         HttpGet request = new HttpGet(url);
         request.setHeader("Authorization", "Bearer " + accessToken);
         request.setHeader("Accept", "application/json");
 
         try (CloseableHttpResponse response = httpClient.execute(request)) {
-            String jsonResponse = EntityUtils.toString(response.getEntity());
-            System.out.println("Raw API response: " + jsonResponse);  // Debug log
-
-            if (jsonResponse == null || jsonResponse.isEmpty()) {
+            HttpEntity entity = response.getEntity();
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode >= 300) {
+                EntityUtils.consume(entity);
+                throw new HttpStatusException("API returned status", statusCode); // Never cache an error body
+            }
+            if (entity == null) {
                 throw new IOException("Empty response from API");
             }
+            try (Reader in = new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8)) {
+                return decoder.decode(in);
+            }
+        }
+    }
+
+    // Rough heap size of decoded hits: object headers plus two bytes per character
+    private static long weighHits(List<SearchHit> hits) {
+        long bytes = 0;
+        for (SearchHit hit : hits) {
+            bytes += 48 + length(hit.getType());
+            if (hit.getSong() != null) {
+                bytes += weighSong(hit.getSong());
+            }
+            if (hit.getArtist() != null) {
+                bytes += weighArtist(hit.getArtist());
+            }
+        }
+        return bytes;
+    }
 
-            return jsonParser.parse(jsonResponse).getAsJsonObject();
+    private static long weighSongs(List<GeniusSong> songs) {
+        long bytes = 0;
+        for (GeniusSong song : songs) {
+            bytes += weighSong(song);
         }
+        return bytes;
+    }
+
+    private static long weighSong(GeniusSong song) {
+        long bytes = 96 + length(song.getTitle()) + length(song.getPath())
+                + length(song.getThumbnailUrl()) + length(song.getPrimaryTag());
+        for (String tag : song.getTags()) {
+            bytes += 48 + length(tag);
+        }
+        return bytes + (song.getPrimaryArtist() != null ? weighArtist(song.getPrimaryArtist()) : 0);
+    }
+
+    private static long weighArtist(GeniusArtist artist) {
+        return 64 + length(artist.getName()) + length(artist.getImageUrl());
+    }
+
+    private static long length(String text) {
+        return text != null ? 40 + 2L * text.length() : 0;
     }
 
     public boolean testAPIConnection() {
@@ -0,0 +1,48 @@
+package com.genius.services;
+
+/**
+ * Connection pool and timeout settings for calls to Genius.
+ */
+public class HttpSettings {
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final int connectTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final int requestTimeoutMillis;
+    private final long keepAliveMillis;
+
+    /**
+     * @param maxTotal             Connections open at once across all hosts
+     * @param maxPerRoute          Connections open at once to one host, e.g. api.genius.com
+     * @param connectTimeoutMillis Time allowed to open a connection
+     * @param socketTimeoutMillis  Time allowed between two packets of a response
+     * @param requestTimeoutMillis Time a request may wait for a free pooled connection
+     * @param keepAliveMillis      How long an idle connection is kept when the server does not say
+     */
+    public HttpSettings(int maxTotal, int maxPerRoute, int connectTimeoutMillis,
+                        int socketTimeoutMillis, int requestTimeoutMillis, long keepAliveMillis) {
+        if (maxTotal <= 0 || maxPerRoute <= 0 || maxPerRoute > maxTotal) {
+            throw new IllegalArgumentException("Connection limits must be positive and per-route within total");
+        }
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    /**
+     * 16 connections per host, 5 s to connect, 15 s between packets, 30 s keep-alive.
+     */
+    public static HttpSettings defaults() {
+        return new HttpSettings(32, 16, 5_000, 15_000, 10_000, 30_000);
+    }
+
+    public int getMaxTotal() { return maxTotal; }
+    public int getMaxPerRoute() { return maxPerRoute; }
+    public int getConnectTimeoutMillis() { return connectTimeoutMillis; }
+    public int getSocketTimeoutMillis() { return socketTimeoutMillis; }
+    public int getRequestTimeoutMillis() { return requestTimeoutMillis; }
+    public long getKeepAliveMillis() { return keepAliveMillis; }
+}
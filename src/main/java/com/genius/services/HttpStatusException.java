@@ -0,0 +1,26 @@
+package com.genius.services;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Genius answers a request with an error status.
+ */
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpStatusException(String message, int statusCode) {
+        super(message + " " + statusCode);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() { return statusCode; }
+
+    /**
+     * @return Whether the same request may succeed later: rate limiting or a server-side error
+     */
+    public boolean isTransient() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,494 @@
+package com.genius.services;
+
+import com.genius.model.content.Song;
+import com.genius.services.api.GeniusSong;
+import com.genius.util.TokenBucket;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fetches song lyrics from Genius in the background and stores them in the songs.
+ *
+ * <p>Fetches wait in a bounded queue; when it is full, {@link #submit} blocks so an
+ * import cannot run arbitrarily far ahead of the fetching. Requests to Genius go
+ * through a token bucket to stay under its rate limit. A fetch that fails for a
+ * reason that may pass (network error, 429, 5xx) is retried after an exponential,
+ * jittered backoff; one that keeps failing, or fails for good (e.g. 404), goes to
+ * a dead-letter list from which it can be re-driven later.</p>
+ *
+ * <p>Fetches run in one of two lanes. Imports use the bounded
+ * {@link Priority#BACKGROUND} lane; a fetch someone is waiting on goes through
+ * {@link #fetchNow}, which moves it to the {@link Priority#INTERACTIVE} lane.
+ * Workers always drain that lane first. While a song's fetch is queued or
+ * running, {@link Song#getLyricsFuture()} completes when it is stored.</p>
+ */
+public class LyricsFetcher implements Closeable {
+    // Genius publishes no limit for its pages; a few requests per second stays clear of 429s
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 4;
+    private static final int DEFAULT_BURST = 8;
+    private static final int DEFAULT_WORKERS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final GeniusAPIService geniusAPI;
+    private final TokenBucket rateLimiter;
+    private final int maxAttempts;
+    private final int queueCapacity;
+    // Both lanes, the songs being fetched and the fetches awaiting a retry are guarded by the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Job> interactive = new ArrayDeque<>();
+    private final ArrayDeque<Job> background = new ArrayDeque<>();
+    private final Set<Song> fetching = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Song, Job> retrying = new IdentityHashMap<>();
+    private final Queue<DeadLetter> deadLetters = new ConcurrentLinkedQueue<>();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "lyrics-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Which lane a fetch waits in.
+     */
+    public enum Priority {
+        /** Someone is waiting for the lyrics; served before any background fetch */
+        INTERACTIVE,
+        /** Bulk fetches, e.g. for an import; bounded */
+        BACKGROUND
+    }
+
+    private static final class Job {
+        final Song song;
+        final Priority priority;
+        String path; // Null until resolved from the song's Genius id
+        int attempts;
+
+        Job(Song song, String path, Priority priority) {
+            this.song = song;
+            this.path = path;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * A fetch that was given up on.
+     */
+    public static final class DeadLetter {
+        private final Song song;
+        private final String path;
+        private final int attempts;
+        private final String error;
+
+        DeadLetter(Song song, String path, int attempts, String error) {
+            this.song = song;
+            this.path = path;
+            this.attempts = attempts;
+            this.error = error;
+        }
+
+        public Song getSong() { return song; }
+        public String getPath() { return path; }
+        public int getAttempts() { return attempts; }
+        public String getError() { return error; }
+    }
+
+    /**
+     * Counters since the fetcher was created, and the current backlog.
+     */
+    public static final class Stats {
+        public final int queued;
+        public final int inFlight;
+        public final int awaitingRetry;
+        public final long succeeded;
+        public final long retried;
+        public final long failed;
+        public final int deadLetters;
+
+        Stats(int queued, int inFlight, int awaitingRetry, long succeeded, long retried, long failed, int deadLetters) {
+            this.queued = queued;
+            this.inFlight = inFlight;
+            this.awaitingRetry = awaitingRetry;
+            this.succeeded = succeeded;
+            this.retried = retried;
+            this.failed = failed;
+            this.deadLetters = deadLetters;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("queued=%d inFlight=%d awaitingRetry=%d succeeded=%d retried=%d failed=%d deadLetters=%d",
+                    queued, inFlight, awaitingRetry, succeeded, retried, failed, deadLetters);
+        }
+    }
+
+    public LyricsFetcher(GeniusAPIService geniusAPI) {
+        this(geniusAPI, DEFAULT_WORKERS, DEFAULT_QUEUE_CAPACITY,
+                new TokenBucket(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST), DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param geniusAPI     Where lyrics come from
+     * @param workers       Fetches run at once
+     * @param queueCapacity Fetches that may wait before {@link #submit} blocks
+     * @param rateLimiter   Paces requests to Genius
+     * @param maxAttempts   Tries per fetch before it is dead-lettered
+     */
+    public LyricsFetcher(GeniusAPIService geniusAPI, int workers, int queueCapacity,
+                         TokenBucket rateLimiter, int maxAttempts) {
+        if (workers <= 0 || queueCapacity <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("Workers, queue capacity and attempts must be positive");
+        }
+        this.geniusAPI = geniusAPI;
+        this.rateLimiter = rateLimiter;
+        this.maxAttempts = maxAttempts;
+        this.queueCapacity = queueCapacity;
+        this.workers = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "lyrics-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            this.workers.execute(this::work);
+        }
+    }
+
+    /**
+     * Queues a song's lyrics to be fetched in the background, waiting while the queue is full.
+     *
+     * @param song The song whose lyrics to set
+     * @param path The song's page path on Genius, or null to look it up by the song's Genius id
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public void submit(Song song, String path) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!closed && background.size() >= queueCapacity) {
+                notFull.await();
+            }
+            if (closed) {
+                throw new RejectedExecutionException("Lyrics fetcher is closed");
+            }
+            enqueue(new Job(song, path, Priority.BACKGROUND));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a song's lyrics to be fetched in the background unless the queue is full.
+     *
+     * @return Whether the fetch was queued
+     */
+    public boolean offer(Song song, String path) {
+        lock.lock();
+        try {
+            return offer(new Job(song, path, Priority.BACKGROUND));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fetches a song's lyrics ahead of every background fetch. A background fetch
+     * already queued for the song, or waiting to be retried, is moved up instead
+     * of fetching twice; one already running is left to finish.
+     *
+     * @param song The song whose lyrics to set
+     * @param path The song's page path on Genius, or null to look it up by the song's Genius id
+     * @return Completes with the lyrics once they are stored, or with the error text if the fetch fails
+     */
+    public CompletableFuture<String> fetchNow(Song song, String path) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("Lyrics fetcher is closed");
+            }
+            if (!fetching.contains(song) && !contains(interactive, song)) {
+                Job queued = retrying.remove(song);
+                if (queued == null && (queued = remove(background, song)) != null) {
+                    notFull.signal(); // Its slot in the background lane is free now
+                }
+                Job job = new Job(song, path, Priority.INTERACTIVE);
+                if (queued != null) {
+                    job.path = path != null ? path : queued.path;
+                    job.attempts = queued.attempts;
+                }
+                deadLetters.removeIf(letter -> letter.song == song); // Fetched again here, so not re-driven later
+                enqueue(job);
+            }
+            return song.getLyricsFuture();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The fetches given up on, oldest first
+     */
+    public List<DeadLetter> getDeadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    /**
+     * Queues the dead-lettered fetches again, each with a fresh set of attempts.
+     * A song already being fetched again is not queued twice. Stops early if the
+     * queue fills up; the rest stay dead-lettered.
+     *
+     * @return How many were queued
+     */
+    public int redriveDeadLetters() {
+        lock.lock();
+        try {
+            int redriven = 0;
+            int pending = deadLetters.size(); // Not the ones that fail again while this runs
+            DeadLetter letter;
+            while (!closed && redriven < pending && (letter = deadLetters.peek()) != null) {
+                if (!isPending(letter.song) && !offer(new Job(letter.song, letter.path, Priority.BACKGROUND))) {
+                    break;
+                }
+                deadLetters.remove(letter);
+                redriven++;
+            }
+            return redriven;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats getStats() {
+        int queued;
+        int awaitingRetry;
+        lock.lock();
+        try {
+            queued = interactive.size() + background.size();
+            awaitingRetry = retrying.size();
+        } finally {
+            lock.unlock();
+        }
+        return new Stats(queued, inFlight.get(), awaitingRetry,
+                succeeded.get(), retried.get(), failed.get(), deadLetters.size());
+    }
+
+    /**
+     * Stops fetching; queued and pending fetches are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            retrying.clear();
+            notFull.signalAll(); // Blocked submitters fail instead of waiting forever
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdownNow();
+        retryScheduler.shutdownNow();
+    }
+
+    private void work() {
+        while (!closed) {
+            Job job;
+            try {
+                job = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            inFlight.incrementAndGet();
+            try {
+                // Lyrics kept on disk cost no request, so they skip the rate limit
+                String lyrics = job.path != null ? geniusAPI.getCachedLyrics(job.path) : null;
+                if (lyrics == null) {
+                    rateLimiter.acquire();
+                    if (job.path == null) {
+                        job.path = resolvePath(job.song);
+                    }
+                    lyrics = geniusAPI.getLyricsUncached(job.path); // The disk was checked above
+                }
+                job.song.setLyrics(lyrics != null && !lyrics.isEmpty() ? lyrics : Song.NO_LYRICS);
+                done(job);
+                succeeded.incrementAndGet();
+            } catch (InterruptedException e) {
+                done(job);
+                return;
+            } catch (IOException | RuntimeException e) {
+                failed(job, e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    // Callers hold the lock; the lane has room
+    private void enqueue(Job job) {
+        (job.priority == Priority.INTERACTIVE ? interactive : background).add(job);
+        job.song.expectLyrics();
+        notEmpty.signal();
+    }
+
+    // Callers hold the lock
+    private boolean offer(Job job) {
+        if (closed || (job.priority == Priority.BACKGROUND && background.size() >= queueCapacity)) {
+            return false;
+        }
+        enqueue(job);
+        return true;
+    }
+
+    private Job take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (interactive.isEmpty() && background.isEmpty()) {
+                notEmpty.await();
+            }
+            Job job = interactive.poll();
+            if (job == null) {
+                job = background.poll();
+                notFull.signal();
+            }
+            fetching.add(job.song);
+            return job;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // After a success the lyrics are set first, so a fetchNow in between finds them rather than fetching again
+    private void done(Job job) {
+        lock.lock();
+        try {
+            fetching.remove(job.song);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Callers hold the lock
+    private boolean isPending(Song song) {
+        return fetching.contains(song) || retrying.containsKey(song)
+                || contains(interactive, song) || contains(background, song);
+    }
+
+    // Songs shown straight from a Genius listing carry only their id
+    private String resolvePath(Song song) throws IOException {
+        if (song.getGeniusId() == null) {
+            throw new IOException("Song is not on Genius");
+        }
+        GeniusSong details = geniusAPI.getSongDetails(song.getGeniusId());
+        if (details == null || details.getPath() == null) {
+            throw new HttpStatusException("No lyrics page for song", 404);
+        }
+        return details.getPath();
+    }
+
+    private static boolean contains(ArrayDeque<Job> lane, Song song) {
+        for (Job job : lane) {
+            if (job.song == song) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Job remove(ArrayDeque<Job> lane, Song song) {
+        Iterator<Job> jobs = lane.iterator();
+        while (jobs.hasNext()) {
+            Job job = jobs.next();
+            if (job.song == song) {
+                jobs.remove();
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private void failed(Job job, Exception error) {
+        job.attempts++;
+        boolean mayPass = error instanceof IOException
+                && (!(error instanceof HttpStatusException) || ((HttpStatusException) error).isTransient());
+        if (mayPass && job.attempts < maxAttempts && !closed) {
+            // The song moves from fetching to retrying in one step, so a fetchNow never finds it in neither
+            lock.lock();
+            try {
+                fetching.remove(job.song);
+                retrying.put(job.song, job);
+            } finally {
+                lock.unlock();
+            }
+            retried.incrementAndGet();
+            retryLater(job, backoffMillis(job.attempts));
+            return;
+        }
+        failed.incrementAndGet();
+        deadLetters.add(new DeadLetter(job.song, job.path, job.attempts, error.getMessage()));
+        System.err.println("Giving up on lyrics for " + job.song.getTitle()
+                + " after " + job.attempts + " attempt(s): " + error.getMessage());
+        job.song.setLyrics("Error loading lyrics");
+        done(job);
+    }
+
+    private void retryLater(Job job, long delayMillis) {
+        try {
+            retryScheduler.schedule(() -> {
+                // Retries never block the scheduler waiting for room; if there is none, try again shortly
+                boolean queued;
+                lock.lock();
+                try {
+                    if (retrying.get(job.song) != job) {
+                        return; // Moved to the interactive lane by fetchNow, or closed
+                    }
+                    queued = offer(job);
+                    if (queued) {
+                        retrying.remove(job.song);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (!queued && !closed) {
+                    retryLater(job, BASE_BACKOFF_MILLIS);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed meanwhile; close() already dropped the retry
+        }
+    }
+
+    // Doubles with each attempt up to the cap; a random half of it spreads out retries that failed together
+    private static long backoffMillis(int attempts) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempts - 1, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+}
@@ -1,34 +1,66 @@
 package com.genius.services;
 
-import com.genius.model.accounts.Account;
 import com.genius.model.accounts.Artist;
 import com.genius.model.content.Song;
 import com.genius.model.enums.Genre;
+import com.genius.search.LyricsMatch;
+import com.genius.search.SearchMerger;
+import com.genius.search.SongSearchResult;
+import com.genius.search.Suggestion;
 import com.genius.util.Database;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.genius.services.api.GeniusSong;
+import com.genius.services.api.SearchHit;
 
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 public class SongService {
-    private final ExecutorService executorService;
+    private static final int DEFAULT_FUZZY_DISTANCE = 2;
+    private static final long DEFAULT_SEARCH_TIMEOUT_MILLIS = 3000;
+    private static final int RANKED_RESULTS = 20;
+
+    // Genius searches that may wait per search thread; past that a search goes without its Genius leg
+    private static final int SEARCH_QUEUE_PER_THREAD = 2;
+
+    // Runs Genius searches apart from lyric fetches so a search never queues behind them
+    private final ThreadPoolExecutor searchExecutor;
     private final Database database;
     private final GeniusAPIService geniusAPI;
-    private final Map<Integer, Song> geniusIdToSongMap;
+    private final LyricsFetcher lyricsFetcher;
+    private volatile int fuzzyDistance = DEFAULT_FUZZY_DISTANCE;
+    private volatile long searchTimeoutMillis = DEFAULT_SEARCH_TIMEOUT_MILLIS;
 
 
     public SongService(Database database, GeniusAPIService geniusAPI) {
+        this(database, geniusAPI, new LyricsFetcher(geniusAPI));
+    }
+
+    public SongService(Database database, GeniusAPIService geniusAPI, LyricsFetcher lyricsFetcher) {
         this.database = database;
         this.geniusAPI = geniusAPI;
-        this.executorService = Executors.newFixedThreadPool(3); // Adjust thread count as needed
-        this.geniusIdToSongMap = new HashMap<>();
+        this.lyricsFetcher = lyricsFetcher;
+
+        // One thread per connection the pool allows to Genius; more would only wait for a connection
+        int threads = geniusAPI.getHttpSettings().getMaxPerRoute();
+        this.searchExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * SEARCH_QUEUE_PER_THREAD), r -> {
+                    Thread thread = new Thread(r, "genius-search");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy()); // searchSongs answers from the catalog alone
+        searchExecutor.allowCoreThreadTimeOut(true);
     }
 
     public void importSongsFromGenius(String searchQuery) {
@@ -40,49 +72,40 @@ public class SongService {
         try {
             System.out.println("\nSearching Genius for: " + searchQuery);
 
-            JsonObject response = geniusAPI.search(searchQuery);
-            if (response == null || !response.has("response")) {
-                System.out.println("Invalid API response");
-                return;
-            }
-
-            JsonArray hits = response.getAsJsonObject("response").getAsJsonArray("hits");
-            if (hits == null || hits.size() == 0) {
+            List<SearchHit> hits = geniusAPI.search(searchQuery);
+            if (hits.isEmpty()) {
                 System.out.println("No songs found for your search.");
                 return;
             }
 
             System.out.println("Found " + hits.size() + " results. Importing...");
 
-            for (JsonElement hit : hits) {
-                if (hit == null || !hit.isJsonObject()) continue;
+            for (SearchHit hit : hits) {
+                if (hit.getSong() == null) continue;
 
-                JsonObject songData = hit.getAsJsonObject().getAsJsonObject("result");
-                if (songData == null) continue;
-
-                processSongData(songData);
+                processSongData(hit.getSong());
             }
 
+            // One group commit for the whole batch instead of one per song
+            database.awaitDurable();
             System.out.println("Import completed!\n");
         } catch (Exception e) {
             System.err.println("Error during import: " + e.getMessage());
         }
     }
 
-    private void processSongData(JsonObject songData) {
+    private void processSongData(GeniusSong songData) {
         try {
-            // Parse song data from JSON
-            int geniusId = songData.get("id").getAsInt();
+            int geniusId = songData.getId();
 
             // Check if song already exists
-            if (geniusIdToSongMap.containsKey(geniusId)) {
+            if (database.getSongByGeniusId(geniusId) != null) {
                 return;
             }
 
-            String title = songData.get("title").getAsString();
-            String path = songData.get("path").getAsString();
-            JsonObject primaryArtist = songData.getAsJsonObject("primary_artist");
-            String artistName = primaryArtist.get("name").getAsString();
+            String title = songData.getTitle();
+            String path = songData.getPath();
+            String artistName = songData.getPrimaryArtist() != null ? songData.getPrimaryArtist().getName() : null;
 
             // Get or create artist
             Artist artist = findOrCreateArtist(artistName);
@@ -95,79 +118,170 @@ public class SongService {
                     determineGenre(songData),
                     new Date(),
                     geniusId,
-                    songData.has("song_art_image_url") ?
-                            songData.getAsJsonObject("song_art_image_url").get("thumbnail").getAsString() : null
+                    songData.getThumbnailUrl()
             );
+            song.setApiPath(path);
 
-            // Cache and store the song
-            geniusIdToSongMap.put(geniusId, song);
-            database.addSong(song);
+            // Store the song unless a concurrent import got there first
+            if (database.addSongIfAbsent(song) != song) {
+                return;
+            }
             artist.addSong(song);
 
-            // Fetch lyrics in background
-            executorService.submit(() -> {
-                try {
-                    String lyrics = geniusAPI.getLyrics(path);
-                    song.setLyrics(lyrics != null ? lyrics : "Lyrics not available");
-                } catch (Exception e) {
-                    System.err.println("Error fetching lyrics for " + title + ": " + e.getMessage());
-                    song.setLyrics("Error loading lyrics");
-                }
-            });
+            // Fetch lyrics in background; waits here while the fetch queue is full
+            lyricsFetcher.submit(song, path);
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             System.err.println("Error processing song data: " + e.getMessage());
         }
     }
+    /**
+     * Searches Genius and the local catalog, giving Genius up to the default timeout.
+     *
+     * @param query Free text
+     * @return Genius results first, then the best ranked local matches, then other local and
+     *         typo-tolerant local matches, each song once
+     */
     public List<Song> searchSongs(String query) {
-        List<Song> allResults = new ArrayList<>();
+        return searchSongs(query, searchTimeoutMillis).getSongs();
+    }
 
-        // Step 1: Genius API search
+    /**
+     * Searches Genius in the background while the local legs run. If Genius has not
+     * answered by the deadline, or too many searches are already waiting for it, the
+     * local results are returned on their own.
+     *
+     * @param query         Free text
+     * @param timeoutMillis Deadline for the whole search
+     * @return The merged songs and the legs that were included
+     */
+    public SongSearchResult searchSongs(String query, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        SearchMerger merger = new SearchMerger();
+
+        Future<?> remote = null;
         try {
-            JsonObject response = geniusAPI.search(query);
-            JsonArray hits = response.getAsJsonObject("response").getAsJsonArray("hits");
-
-            for (JsonElement hit : hits) {
-                JsonObject result = hit.getAsJsonObject().getAsJsonObject("result");
-                if (result != null && "song".equals(result.get("type").getAsString())) {
-                    Song song = createSongFromApiResult(result);
-                    if (song != null) {
-                        allResults.add(song);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error in Genius API search: " + e.getMessage());
+            remote = searchExecutor.submit(() -> {
+                merger.offer(SongSearchResult.Source.GENIUS, searchGenius(query));
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Genius search skipped: too many searches in progress");
         }
 
-        // Step 2: Local search
-        List<Song> localMatches = database.getSongs().stream()
-                .filter(song -> song.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                        song.getArtists().stream().anyMatch(
-                                artist -> artist.getName().toLowerCase().contains(query.toLowerCase())))
-                .collect(Collectors.toList());
-
-        // Step 3: Merge results and deduplicate by title + artist combo
-        Set<String> seenKeys = new HashSet<>();
-        List<Song> finalResults = new ArrayList<>();
-
-        for (Song song : allResults) {
-            String key = song.getTitle().toLowerCase() + "-" + song.getArtists().get(0).getName().toLowerCase();
-            if (seenKeys.add(key)) {
-                finalResults.add(song);
+        merger.offer(SongSearchResult.Source.RANKED, searchRankedSongs(query));
+        merger.offer(SongSearchResult.Source.LOCAL, searchLocalSongs(query));
+        merger.offer(SongSearchResult.Source.FUZZY, searchLocalSongsFuzzy(query));
+
+        if (remote != null) {
+            try {
+                remote.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                remote.cancel(true);
+            } catch (ExecutionException e) {
+                System.err.println("Error in Genius API search: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                remote.cancel(true);
+                Thread.currentThread().interrupt();
             }
         }
+        return merger.finish();
+    }
 
-        for (Song song : localMatches) {
-            String key = song.getTitle().toLowerCase() + "-" + song.getArtists().get(0).getName().toLowerCase();
-            if (seenKeys.add(key)) {
-                finalResults.add(song);
+    public long getSearchTimeoutMillis() { return searchTimeoutMillis; }
+
+    public void setSearchTimeoutMillis(long searchTimeoutMillis) {
+        if (searchTimeoutMillis > 0) {
+            this.searchTimeoutMillis = searchTimeoutMillis;
+        }
+    }
+
+    // Song hits from the Genius search endpoint, in Genius's order
+    private List<Song> searchGenius(String query) throws IOException {
+        List<Song> results = new ArrayList<>();
+        for (SearchHit hit : geniusAPI.search(query)) {
+            if (hit.getSong() != null) {
+                Song song = createSongFromApiResult(hit.getSong());
+                if (song != null) {
+                    results.add(song);
+                }
             }
         }
+        return results;
+    }
+
+
+    /**
+     * Searches the catalog by relevance over titles, artist names and lyrics,
+     * favouring popular songs among similar matches.
+     *
+     * @param query Free text
+     * @return The best local matches, best first
+     */
+    public List<Song> searchRankedSongs(String query) {
+        return database.searchSongsRanked(query, RANKED_RESULTS);
+    }
 
-        return finalResults;
+    /**
+     * Searches only the songs already in the catalog, matching any part of a title
+     * or artist name.
+     *
+     * @param query Free text
+     * @return Matching local songs in catalog order
+     */
+    public List<Song> searchLocalSongs(String query) {
+        return database.searchSongsContaining(query);
     }
 
+    /**
+     * Searches the catalog tolerating typos in each word, up to the configured edit distance.
+     *
+     * @param query Free text, possibly misspelled
+     * @return Matching local songs, closest first
+     */
+    public List<Song> searchLocalSongsFuzzy(String query) {
+        return database.searchSongsFuzzy(query, fuzzyDistance);
+    }
+
+    /**
+     * @param fuzzyDistance Most typos tolerated per word by fuzzy search; 0 disables it
+     */
+    public void setFuzzyDistance(int fuzzyDistance) {
+        if (fuzzyDistance >= 0) {
+            this.fuzzyDistance = fuzzyDistance;
+        }
+    }
+
+    /**
+     * Finds local songs by a remembered lyric line; wrap the text in quotes for an exact phrase.
+     *
+     * @param query A lyric fragment
+     * @return Matching songs with the line that matched
+     */
+    public List<LyricsMatch> searchLyrics(String query) {
+        return database.searchLyrics(query, 20);
+    }
+
+    /**
+     * @return Whether lyric search covers the whole catalog yet; right after startup
+     *         the lyrics are still being indexed in the background
+     */
+    public boolean isLyricsIndexReady() {
+        return database.isLyricsIndexReady();
+    }
+
+    /**
+     * Type-ahead completions for a partly typed title or artist name.
+     *
+     * @param prefix What has been typed so far
+     * @param limit  Maximum number of completions
+     * @return Most viewed matches first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return database.suggest(prefix, limit);
+    }
 
     public Song createSong(String title, String lyrics, Artist artist,
                            Genre genre, Date releaseDate, Integer geniusId,
@@ -190,25 +304,24 @@ public class SongService {
                 thumbnailUrl
         );
 
-        // Add to collections
-        database.addSong(song);
+        // Add to collections, refusing a second song for the same Genius id
+        if (database.addSongIfAbsent(song) != song) {
+            return null;
+        }
         artist.addSong(song); // This now works with the modified Artist class
 
         return song;
     }
 
 
-    private Genre determineGenre(JsonObject songData) {
+    private Genre determineGenre(GeniusSong songData) {
         try {
-            if (songData.has("tags") && songData.get("tags").isJsonArray()) {
-                JsonArray tags = songData.getAsJsonArray("tags");
-                for (JsonElement tag : tags) {
-                    String tagName = tag.getAsString().toLowerCase();
-                    if (tagName.contains("hip-hop")) return Genre.HIP_HOP;
-                    if (tagName.contains("rock")) return Genre.ROCK;
-                    if (tagName.contains("pop")) return Genre.POP;
-                    if (tagName.contains("r&b")) return Genre.RNB;
-                }
+            for (String tag : songData.getTags()) {
+                String tagName = tag.toLowerCase();
+                if (tagName.contains("hip-hop")) return Genre.HIP_HOP;
+                if (tagName.contains("rock")) return Genre.ROCK;
+                if (tagName.contains("pop")) return Genre.POP;
+                if (tagName.contains("r&b")) return Genre.RNB;
             }
         } catch (Exception e) {
             System.err.println("Error determining genre: " + e.getMessage());
@@ -216,51 +329,26 @@ public class SongService {
         return Genre.POP; // Default
     }
 
-    private void fetchAndStoreLyrics(Song song) {
-        try {
-            System.out.println("Fetching lyrics for: " + song.getTitle());
-
-            // Get the song path from Genius API first
-            JsonObject songDetails = geniusAPI.getSongDetails(song.getGeniusId());
-            String path = songDetails.getAsJsonObject("response")
-                    .getAsJsonObject("song")
-                    .get("path").getAsString();
-
-            // Then fetch lyrics using the path
-            String lyrics = geniusAPI.getLyrics(path);
-
-            synchronized (song) {
-                song.setLyrics(lyrics != null ? lyrics : "Lyrics not available");
-            }
-            System.out.println("✓ Lyrics loaded for " + song.getTitle());
-        } catch (Exception e) {
-            System.err.println("Failed to get lyrics for " + song.getTitle() + ": " + e.getMessage());
-            synchronized (song) {
-                song.setLyrics("Could not load lyrics");
-            }
-        }
-    }
     private Artist findOrCreateArtist(String name) {
         if (name == null || name.trim().isEmpty()) {
             name = "Unknown Artist";
         }
 
-        synchronized (database) {
-            String finalName = name;
-            String finalName1 = name;
-            return database.getAccounts().stream()
-                    .filter(Account.class::isInstance)
-                    .map(Account.class::cast)
-                    .filter(a -> a instanceof Artist)
-                    .map(a -> (Artist) a)
-                    .filter(a -> finalName1.equalsIgnoreCase(a.getName()))
-                    .findFirst()
-                    .orElseGet(() -> createNewArtist(finalName));
+        Artist artist = database.getOrCreateArtist(name, this::createNewArtist);
+        if (artist == null) {
+            throw new IllegalStateException("Could not register artist " + name);
         }
+        return artist;
     }
 
+    // Called by the database while it holds the name index entry; the artist is stored by the caller,
+    // which calls again if another artist takes the username first
     private Artist createNewArtist(String name) {
-        String username = name.toLowerCase().replaceAll("[^a-z0-9]", "_");
+        String baseUsername = name.toLowerCase().replaceAll("[^a-z0-9]", "_");
+        String username = baseUsername;
+        for (int suffix = 2; database.getAccountByUsername(username) != null; suffix++) {
+            username = baseUsername + "_" + suffix;
+        }
         Artist artist = new Artist(
                 username,
                 "temp_pass_" + System.currentTimeMillis(),
@@ -269,24 +357,24 @@ public class SongService {
                 username + "@genius.com"
         );
         artist.setVerified(true);
-
-        synchronized (database) {
-            database.addAccount(artist);
-        }
         return artist;
     }
 
 
 
-    public Song createSongFromApiResult(JsonObject songData) {
+    public Song createSongFromApiResult(GeniusSong songData) {
         try {
-            int geniusId = songData.get("id").getAsInt();
-            String title = songData.get("title").getAsString();
-            String path = songData.get("path").getAsString();
+            int geniusId = songData.getId();
+            Song existing = database.getSongByGeniusId(geniusId);
+            if (existing != null) {
+                return existing;
+            }
+            String title = songData.getTitle();
+            String path = songData.getPath();
 
             // Get or create artist
-            JsonObject artistJson = songData.getAsJsonObject("primary_artist");
-            Artist artist = findOrCreateArtist(artistJson.get("name").getAsString());
+            Artist artist = findOrCreateArtist(
+                    songData.getPrimaryArtist() != null ? songData.getPrimaryArtist().getName() : null);
 
             // Create song
             Song song = new Song(
@@ -296,20 +384,12 @@ public class SongService {
                     determineGenre(songData),
                     new Date(),
                     geniusId,
-                    songData.has("song_art_image_url") ?
-                            songData.getAsJsonObject("song_art_image_url").get("thumbnail").getAsString() : null
+                    songData.getThumbnailUrl()
             );
+            song.setApiPath(path);
 
-            // Load lyrics in background
-            executorService.submit(() -> {
-                try {
-                    String lyrics = geniusAPI.getLyrics(path);
-                    song.setLyrics(lyrics != null ? lyrics : "Lyrics not available");
-                } catch (Exception e) {
-                    song.setLyrics("Error loading lyrics");
-                    System.err.println("Failed to process thumbnail: " + e.getMessage());
-                }
-            });
+            // Load lyrics in background; if the queue is full they are fetched when the song is opened
+            lyricsFetcher.offer(song, path);
 
             return song;
         } catch (Exception e) {
@@ -327,6 +407,50 @@ public class SongService {
                     .collect(Collectors.toList());
         }
     }
+    /**
+     * Gets a song's lyrics for someone about to read them. If they are not loaded
+     * yet, their fetch is moved ahead of all background fetches, or started if
+     * there was none. A song Genius has no lyrics for is not fetched again.
+     *
+     * @param song The song being opened
+     * @return Completes with the lyrics; already complete if they were loaded
+     */
+    public CompletableFuture<String> requestLyrics(Song song) {
+        if (!Song.isPendingLyrics(song.getLyrics()) || song.getGeniusId() == null) {
+            return song.getLyricsFuture();
+        }
+        try {
+            return lyricsFetcher.fetchNow(song, song.getApiPath());
+        } catch (RejectedExecutionException e) {
+            return song.getLyricsFuture();
+        }
+    }
+
+    /**
+     * Waits a short while for a song's lyrics, fetching them first if needed.
+     *
+     * @param song          The song being opened
+     * @param timeoutMillis How long to wait for a fetch
+     * @return The lyrics, or whatever the song shows if they did not arrive in time
+     */
+    public String awaitLyrics(Song song, long timeoutMillis) {
+        try {
+            return requestLyrics(song).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Keep showing the placeholder; the fetch carries on in the background
+        }
+        return song.getLyrics();
+    }
+
+    /**
+     * @return The background lyric fetching, for its metrics and dead letters
+     */
+    public LyricsFetcher getLyricsFetcher() {
+        return lyricsFetcher;
+    }
+
     public GeniusAPIService getGeniusAPI() {
         return this.geniusAPI;
     }
@@ -0,0 +1,23 @@
+package com.genius.services.api;
+
+/**
+ * The artist fields this application reads from a Genius payload.
+ */
+public class GeniusArtist {
+    private final int id;
+    private final String name;
+    private final boolean verified;
+    private final String imageUrl;
+
+    public GeniusArtist(int id, String name, boolean verified, String imageUrl) {
+        this.id = id;
+        this.name = name;
+        this.verified = verified;
+        this.imageUrl = imageUrl;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public boolean isVerified() { return verified; }
+    public String getImageUrl() { return imageUrl; }
+}
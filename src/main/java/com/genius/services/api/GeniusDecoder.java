@@ -0,0 +1,291 @@
+package com.genius.services.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes Genius API responses straight from the byte stream.
+ *
+ * <p>Only the fields the application uses are read; every other subtree
+ * (descriptions, annotations, media, highlights...) is skipped by the reader
+ * without building objects for it, so no tree of the whole response is ever
+ * held in memory.</p>
+ *
+ * <p>Lists are returned unmodifiable, as cached responses are shared between callers.</p>
+ */
+public final class GeniusDecoder {
+
+    private GeniusDecoder() {
+    }
+
+    /**
+     * @return The hits of a search response, in Genius's order; unmodifiable
+     * @throws IOException if the stream is not a well-formed response
+     */
+    public static List<SearchHit> readSearchHits(Reader in) throws IOException {
+        List<SearchHit> hits = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in)) {
+            readResponse(reader, (name, r) -> {
+                if ("hits".equals(name)) {
+                    readArray(r, () -> hits.add(readHit(r)));
+                } else {
+                    r.skipValue();
+                }
+            });
+        }
+        return List.copyOf(hits);
+    }
+
+    /**
+     * Reads a chart response; accepts both a plain song list and chart items wrapping songs.
+     *
+     * @return The charted songs, top first; unmodifiable
+     * @throws IOException if the stream is not a well-formed response
+     */
+    public static List<GeniusSong> readChartSongs(Reader in) throws IOException {
+        List<GeniusSong> songs = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in)) {
+            readResponse(reader, (name, r) -> {
+                if ("songs".equals(name)) {
+                    readArray(r, () -> songs.add(readResult(r).toSong()));
+                } else if ("chart_items".equals(name)) {
+                    readArray(r, () -> readObject(r, (field, item) -> {
+                        if ("item".equals(field)) {
+                            songs.add(readResult(item).toSong());
+                        } else {
+                            item.skipValue();
+                        }
+                    }));
+                } else {
+                    r.skipValue();
+                }
+            });
+        }
+        return List.copyOf(songs);
+    }
+
+    /**
+     * @return The song of a /songs/{id} response, or null if it had none
+     * @throws IOException if the stream is not a well-formed response
+     */
+    public static GeniusSong readSong(Reader in) throws IOException {
+        GeniusSong[] song = new GeniusSong[1];
+        try (JsonReader reader = new JsonReader(in)) {
+            readResponse(reader, (name, r) -> {
+                if ("song".equals(name)) {
+                    song[0] = readResult(r).toSong();
+                } else {
+                    r.skipValue();
+                }
+            });
+        }
+        return song[0];
+    }
+
+    /**
+     * @return The artist of an /artists/{id} response, or null if it had none
+     * @throws IOException if the stream is not a well-formed response
+     */
+    public static GeniusArtist readArtist(Reader in) throws IOException {
+        GeniusArtist[] artist = new GeniusArtist[1];
+        try (JsonReader reader = new JsonReader(in)) {
+            readResponse(reader, (name, r) -> {
+                if ("artist".equals(name)) {
+                    artist[0] = readResult(r).toArtist();
+                } else {
+                    r.skipValue();
+                }
+            });
+        }
+        return artist[0];
+    }
+
+    @FunctionalInterface
+    private interface FieldReader {
+        // Must consume the field's value, skipping it if unused
+        void read(String name, JsonReader reader) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ElementReader {
+        void read() throws IOException;
+    }
+
+    // Descends into the top-level "response" object, skipping "meta" and anything else
+    private static void readResponse(JsonReader reader, FieldReader fields) throws IOException {
+        readObject(reader, (name, r) -> {
+            if ("response".equals(name)) {
+                readObject(r, fields);
+            } else {
+                r.skipValue();
+            }
+        });
+    }
+
+    private static void readObject(JsonReader reader, FieldReader fields) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            fields.read(reader.nextName(), reader);
+        }
+        reader.endObject();
+    }
+
+    private static void readArray(JsonReader reader, ElementReader element) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            element.read();
+        }
+        reader.endArray();
+    }
+
+    private static SearchHit readHit(JsonReader reader) throws IOException {
+        String[] type = new String[1];
+        Result[] result = new Result[1];
+        readObject(reader, (name, r) -> {
+            switch (name) {
+                case "type" -> type[0] = readString(r);
+                case "result" -> result[0] = readResult(r);
+                default -> r.skipValue();
+            }
+        });
+        if (result[0] == null) {
+            return new SearchHit(type[0], null, null);
+        }
+        // The type may come before or after the result, so the result is kept raw until both are read
+        if ("artist".equals(type[0])) {
+            return new SearchHit(type[0], null, result[0].toArtist());
+        }
+        return new SearchHit(type[0], result[0].toSong(), null);
+    }
+
+    // Fields of a song or artist object; which ones are present depends on the payload
+    private static Result readResult(JsonReader reader) throws IOException {
+        Result result = new Result();
+        readObject(reader, (name, r) -> {
+            switch (name) {
+                case "id" -> result.id = readInt(r);
+                case "title" -> result.title = readString(r);
+                case "name" -> result.name = readString(r);
+                case "path" -> result.path = readString(r);
+                case "is_verified" -> result.verified = readBoolean(r);
+                case "image_url" -> result.imageUrl = readString(r);
+                case "song_art_image_url" -> result.thumbnailUrl = readImageUrl(r);
+                case "stats" -> readObject(r, (stat, s) -> {
+                    if ("pageviews".equals(stat)) {
+                        result.pageviews = readInt(s);
+                    } else {
+                        s.skipValue();
+                    }
+                });
+                case "primary_artist" -> result.primaryArtist = readResult(r).toArtist();
+                case "primary_tag" -> result.primaryTag = readTagName(r);
+                case "tags" -> readArray(r, () -> {
+                    String tag = readTagName(r);
+                    if (tag != null) {
+                        result.tags.add(tag);
+                    }
+                });
+                default -> r.skipValue();
+            }
+        });
+        return result;
+    }
+
+    private static final class Result {
+        int id;
+        String title;
+        String name;
+        String path;
+        boolean verified;
+        String imageUrl;
+        String thumbnailUrl;
+        int pageviews;
+        GeniusArtist primaryArtist;
+        String primaryTag;
+        final List<String> tags = new ArrayList<>();
+
+        GeniusSong toSong() {
+            return new GeniusSong(id, title, path, thumbnailUrl, pageviews, primaryArtist, primaryTag, tags);
+        }
+
+        GeniusArtist toArtist() {
+            return new GeniusArtist(id, name, verified, imageUrl);
+        }
+    }
+
+    // Either a URL string or an object of sizes with a "thumbnail" URL
+    private static String readImageUrl(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return readString(reader);
+        }
+        String[] thumbnail = new String[1];
+        readObject(reader, (name, r) -> {
+            if ("thumbnail".equals(name)) {
+                thumbnail[0] = readString(r);
+            } else {
+                r.skipValue();
+            }
+        });
+        return thumbnail[0];
+    }
+
+    // A tag is either its name or an object with a "name"
+    private static String readTagName(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return readString(reader);
+        }
+        String[] tag = new String[1];
+        readObject(reader, (name, r) -> {
+            if ("name".equals(name)) {
+                tag[0] = readString(r);
+            } else {
+                r.skipValue();
+            }
+        });
+        return tag[0];
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static int readInt(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return reader.nextInt();
+            } catch (NumberFormatException e) {
+                reader.skipValue(); // Not an int, e.g. a fraction or out of range
+                return 0;
+            }
+        }
+        reader.skipValue();
+        return 0;
+    }
+
+    private static boolean readBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        reader.skipValue();
+        return false;
+    }
+}
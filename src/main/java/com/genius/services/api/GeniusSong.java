@@ -0,0 +1,50 @@
+package com.genius.services.api;
+
+import java.util.List;
+
+/**
+ * The song fields this application reads from a Genius search hit, chart entry or song payload.
+ */
+public class GeniusSong {
+    private final int id;
+    private final String title;
+    private final String path;
+    private final String thumbnailUrl;
+    private final int pageviews;
+    private final GeniusArtist primaryArtist;
+    private final String primaryTag;
+    private final List<String> tags;
+
+    public GeniusSong(int id, String title, String path, String thumbnailUrl, int pageviews,
+                      GeniusArtist primaryArtist, String primaryTag, List<String> tags) {
+        this.id = id;
+        this.title = title;
+        this.path = path;
+        this.thumbnailUrl = thumbnailUrl;
+        this.pageviews = pageviews;
+        this.primaryArtist = primaryArtist;
+        this.primaryTag = primaryTag;
+        this.tags = List.copyOf(tags);
+    }
+
+    public int getId() { return id; }
+    public String getTitle() { return title; }
+
+    /**
+     * @return Path of the lyrics page on genius.com, e.g. "/Taylor-swift-shake-it-off-lyrics"
+     */
+    public String getPath() { return path; }
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public int getPageviews() { return pageviews; }
+
+    /**
+     * @return The primary artist, or null if the payload had none
+     */
+    public GeniusArtist getPrimaryArtist() { return primaryArtist; }
+
+    /**
+     * @return Name of the primary tag (usually the genre), or null
+     */
+    public String getPrimaryTag() { return primaryTag; }
+    public List<String> getTags() { return tags; }
+}
@@ -0,0 +1,56 @@
+package com.genius.services.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lyrics extracted from a Genius song page, with the section headers
+ * ("[Chorus]", "[Verse 2: Artist]"...) held apart from the text.
+ */
+public class Lyrics {
+    private final String text;
+    private final List<Section> sections;
+
+    public Lyrics(String text, List<Section> sections) {
+        this.text = text;
+        this.sections = Collections.unmodifiableList(sections);
+    }
+
+    /**
+     * @return The lyric lines, one per line; stanzas are separated by a blank line
+     */
+    public String getText() { return text; }
+
+    /**
+     * @return The section headers in page order; empty unless they were asked for
+     */
+    public List<Section> getSections() { return sections; }
+
+    /**
+     * A section header and where its lines start in the text.
+     */
+    public static class Section {
+        private final String name;
+        private final int line;
+
+        public Section(String name, int line) {
+            this.name = name;
+            this.line = line;
+        }
+
+        /**
+         * @return The header without its brackets, e.g. "Verse 1: Artist"
+         */
+        public String getName() { return name; }
+
+        /**
+         * @return Zero-based index of the first line of the section in {@link #getText()}
+         */
+        public int getLine() { return line; }
+
+        @Override
+        public String toString() {
+            return "[" + name + "] @" + line;
+        }
+    }
+}
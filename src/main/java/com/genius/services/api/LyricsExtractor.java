@@ -0,0 +1,335 @@
+package com.genius.services.api;
+
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pulls the lyrics out of a Genius song page in one pass over the HTML.
+ *
+ * <p>The page is scanned as it is read, without building a document tree.
+ * Only the text inside {@code <div data-lyrics-container="true">} elements is
+ * kept, one lyric line per {@code <br>}; markup inside them (annotation links,
+ * italics...) is dropped and entities are decoded. Parts marked
+ * {@code data-exclude-from-selection} are skipped, as are scripts and styles
+ * elsewhere on the page. Section headers are always taken out of the text and
+ * are returned as {@link Lyrics.Section}s when asked for.</p>
+ *
+ * <p>Assumes the page's markup is well formed, which Genius's is; stray tags
+ * can at worst cut a container short.</p>
+ */
+public final class LyricsExtractor {
+    private static final String CONTAINER_ATTRIBUTE = "data-lyrics-container=";
+    private static final String EXCLUDE_ATTRIBUTE = "data-exclude-from-selection=";
+    private static final String[] VOID_ELEMENTS = {
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "source", "track", "wbr"
+    };
+
+    // What readTag() found
+    private static final int OPEN = 0;
+    private static final int CLOSE = 1;
+    private static final int OTHER = 2;     // Comment, doctype or processing instruction
+    private static final int NOT_A_TAG = 3; // A literal '<' in text
+
+    private final Reader in;
+    private final boolean keepSections;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+
+    // The tag last read; reused for every tag on the page
+    private final StringBuilder name = new StringBuilder(16);
+    private final StringBuilder attributes = new StringBuilder(256);
+    private boolean selfClosing;
+
+    private final StringBuilder line = new StringBuilder(128);
+    private final StringBuilder text = new StringBuilder(4096);
+    private final List<Lyrics.Section> sections = new ArrayList<>();
+    private int lines;
+    private boolean stanzaBreak; // A blank line goes before the next lyric line
+
+    private LyricsExtractor(Reader in, boolean keepSections) {
+        this.in = in;
+        this.keepSections = keepSections;
+    }
+
+    /**
+     * Reads a song page to its end and returns its lyrics.
+     *
+     * @param in           The page's HTML
+     * @param keepSections Whether to return the section headers
+     * @return The lyrics; empty text if the page had no lyrics containers
+     * @throws IOException if reading the page fails
+     */
+    public static Lyrics extract(Reader in, boolean keepSections) throws IOException {
+        return new LyricsExtractor(in, keepSections).run();
+    }
+
+    private Lyrics run() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c != '<' || readTag() != OPEN) {
+                continue;
+            }
+            if (nameIs("div") && !selfClosing && isTrue(CONTAINER_ATTRIBUTE)) {
+                readContainer();
+            } else if (nameIs("script") || nameIs("style")) {
+                skipRawText();
+            }
+        }
+        return new Lyrics(text.toString(), sections);
+    }
+
+    // Called after the container's opening tag; returns after its closing tag
+    private void readContainer() throws IOException {
+        int depth = 1;
+        int excludedAt = 0; // Depth of the excluded element being skipped, 0 if none
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                int kind = readTag();
+                if (kind == OPEN) {
+                    if (nameIs("br")) {
+                        if (excludedAt == 0) {
+                            endLine();
+                        }
+                    } else if (nameIs("script") || nameIs("style")) {
+                        skipRawText();
+                    } else if (!selfClosing && !isVoid()) {
+                        depth++;
+                        if (excludedAt == 0 && isTrue(EXCLUDE_ATTRIBUTE)) {
+                            excludedAt = depth;
+                        }
+                    }
+                    continue;
+                }
+                if (kind == CLOSE) {
+                    if (isVoid()) {
+                        continue;
+                    }
+                    if (excludedAt == depth) {
+                        excludedAt = 0;
+                    }
+                    if (--depth == 0) {
+                        break;
+                    }
+                    continue;
+                }
+                if (kind == OTHER) {
+                    continue;
+                }
+                // NOT_A_TAG: the '<' is text
+            }
+            if (excludedAt == 0) {
+                append((char) c);
+            }
+        }
+        endLine();
+        stanzaBreak = lines > 0; // Containers are separate stanzas
+    }
+
+    // Collapses runs of whitespace to one space and drops leading whitespace
+    private void append(char c) {
+        if (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f') {
+            if (line.length() > 0 && line.charAt(line.length() - 1) != ' ') {
+                line.append(' ');
+            }
+        } else {
+            line.append(c);
+        }
+    }
+
+    private void endLine() {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == ' ') {
+            line.setLength(--length);
+        }
+        if (length == 0) {
+            stanzaBreak = lines > 0;
+            return;
+        }
+        CharSequence content = line;
+        if (line.indexOf("&") >= 0) {
+            content = Parser.unescapeEntities(line.toString(), false);
+            length = content.length();
+        }
+
+        if (content.charAt(0) == '[' && content.charAt(length - 1) == ']') {
+            stanzaBreak = lines > 0;
+            if (keepSections) {
+                int start = lines + (stanzaBreak ? 1 : 0);
+                sections.add(new Lyrics.Section(content.subSequence(1, length - 1).toString().trim(), start));
+            }
+        } else {
+            if (lines > 0) {
+                text.append('\n');
+                if (stanzaBreak) {
+                    text.append('\n');
+                    lines++;
+                }
+            }
+            text.append(content);
+            lines++;
+            stanzaBreak = false;
+        }
+        line.setLength(0);
+    }
+
+    // Called after '<'; leaves the reader after the tag's '>'
+    private int readTag() throws IOException {
+        int c = read();
+        if (c == '!') {
+            skipDeclaration();
+            return OTHER;
+        }
+        if (c == '?') {
+            skipPast('>');
+            return OTHER;
+        }
+        boolean closing = c == '/';
+        if (closing) {
+            c = read();
+        }
+        if (!isAsciiLetter(c)) {
+            if (closing) {
+                skipPast('>'); // "</" not followed by a name is ignored like a comment
+                return OTHER;
+            }
+            if (c != -1) {
+                pos--;
+            }
+            return NOT_A_TAG;
+        }
+
+        name.setLength(0);
+        while (isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '-' || c == ':') {
+            name.append((char) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c));
+            c = read();
+        }
+        attributes.setLength(0);
+        int quote = 0;
+        while (c != -1) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                break;
+            }
+            attributes.append((char) c);
+            c = read();
+        }
+        selfClosing = attributes.length() > 0 && attributes.charAt(attributes.length() - 1) == '/';
+        return closing ? CLOSE : OPEN;
+    }
+
+    // Skips "<!-- ... -->" or "<!DOCTYPE ...>"; called after the '!'
+    private void skipDeclaration() throws IOException {
+        int c = read();
+        if (c != '-') {
+            if (c != '>') {
+                skipPast('>');
+            }
+            return;
+        }
+        if (read() != '-') {
+            skipPast('>');
+            return;
+        }
+        int dashes = 0;
+        while ((c = read()) != -1) {
+            if (c == '>' && dashes >= 2) {
+                return;
+            }
+            dashes = c == '-' ? dashes + 1 : 0;
+        }
+    }
+
+    // Script and style bodies are not markup; skips to the end tag matching the open one in 'name'
+    private void skipRawText() throws IOException {
+        if (selfClosing) {
+            return;
+        }
+        int c;
+        while ((c = read()) != -1) {
+            if (c != '<' || read() != '/') {
+                continue;
+            }
+            int matched = 0;
+            while (matched < name.length()) {
+                c = read();
+                if (c == -1 || Character.toLowerCase((char) c) != name.charAt(matched)) {
+                    break;
+                }
+                matched++;
+            }
+            if (matched == name.length()) {
+                skipPast('>');
+                return;
+            }
+        }
+    }
+
+    private void skipPast(char end) throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != end) {
+            // Skip
+        }
+    }
+
+    private boolean nameIs(String tag) {
+        if (name.length() != tag.length()) {
+            return false;
+        }
+        for (int i = 0; i < tag.length(); i++) {
+            if (name.charAt(i) != tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether the last tag has the attribute (given with its '=') set to "true", quoted or not
+    private boolean isTrue(String attribute) {
+        int at = attributes.indexOf(attribute);
+        if (at < 0) {
+            return false;
+        }
+        int value = at + attribute.length();
+        if (value < attributes.length() && (attributes.charAt(value) == '"' || attributes.charAt(value) == '\'')) {
+            value++;
+        }
+        return value + 4 <= attributes.length() && "true".contentEquals(attributes.subSequence(value, value + 4));
+    }
+
+    private boolean isVoid() {
+        for (String element : VOID_ELEMENTS) {
+            if (nameIs(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            int n = in.read(buffer, 0, buffer.length);
+            if (n <= 0) {
+                pos = limit = 0;
+                return -1;
+            }
+            pos = 0;
+            limit = n;
+        }
+        return buffer[pos++];
+    }
+}
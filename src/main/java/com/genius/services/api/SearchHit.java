@@ -0,0 +1,31 @@
+package com.genius.services.api;
+
+/**
+ * One hit of a Genius search: a song, or an artist when searching by type.
+ */
+public class SearchHit {
+    private final String type;
+    private final GeniusSong song;
+    private final GeniusArtist artist;
+
+    public SearchHit(String type, GeniusSong song, GeniusArtist artist) {
+        this.type = type;
+        this.song = song;
+        this.artist = artist;
+    }
+
+    /**
+     * @return The result type Genius reported, e.g. "song" or "artist"
+     */
+    public String getType() { return type; }
+
+    /**
+     * @return The song, or null if the hit is not a song
+     */
+    public GeniusSong getSong() { return song; }
+
+    /**
+     * @return The artist, or null if the hit is not an artist
+     */
+    public GeniusArtist getArtist() { return artist; }
+}
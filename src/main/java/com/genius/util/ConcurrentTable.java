@@ -0,0 +1,126 @@
+package com.genius.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One entity table of the Database, with its own lock stripe.
+ *
+ * <p>Readers never lock: {@link #snapshot()} returns an immutable view of the rows
+ * published so far. Appends write into spare capacity past the published size and
+ * then publish a new view, so existing snapshots are never disturbed. Removals
+ * copy the array. Writers of different tables never contend.</p>
+ *
+ * @param <T> The row type
+ */
+public class ConcurrentTable<T> {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Snapshot<T> published = new Snapshot<>(new Object[16], 0);
+
+    /**
+     * @return An immutable, point-in-time view of every row
+     */
+    public List<T> snapshot() {
+        return published;
+    }
+
+    public int size() {
+        return published.size;
+    }
+
+    /**
+     * @return The row at the index, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Snapshot<T> current = published;
+        return index >= 0 && index < current.size ? (T) current.rows[index] : null;
+    }
+
+    /**
+     * Appends a row and returns its index.
+     */
+    public int add(T row) {
+        lock.writeLock().lock();
+        try {
+            Snapshot<T> current = published;
+            Object[] rows = current.rows;
+            if (current.size == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            rows[current.size] = row;
+            published = new Snapshot<>(rows, current.size + 1);
+            return current.size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(T row) {
+        lock.writeLock().lock();
+        try {
+            Snapshot<T> current = published;
+            for (int i = 0; i < current.size; i++) {
+                if (current.rows[i].equals(row)) {
+                    Object[] rows = new Object[Math.max(current.rows.length, 16)];
+                    System.arraycopy(current.rows, 0, rows, 0, i);
+                    System.arraycopy(current.rows, i + 1, rows, i, current.size - i - 1);
+                    published = new Snapshot<>(rows, current.size - 1);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every row, e.g. when a snapshot is loaded.
+     */
+    public void replaceAll(Collection<? extends T> rows) {
+        lock.writeLock().lock();
+        try {
+            Object[] copy = Arrays.copyOf(rows.toArray(), Math.max(rows.size(), 16));
+            published = new Snapshot<>(copy, rows.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The stripe lock. Hold the write side to keep an index in step with this table,
+     * and the read side to consult such an index.
+     */
+    public ReentrantReadWriteLock lock() {
+        return lock;
+    }
+
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] rows;
+        private final int size;
+
+        Snapshot(Object[] rows, int size) {
+            this.rows = rows;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T) rows[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
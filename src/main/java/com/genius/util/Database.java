@@ -7,158 +7,934 @@ import com.genius.model.content.Album;
 import com.genius.model.content.Comment;
 import com.genius.model.content.LyricEdit;
 import com.genius.model.content.Song;
+import com.genius.search.Autocomplete;
+import com.genius.search.LyricsIndex;
+import com.genius.search.LyricsMatch;
+import com.genius.search.SongIndex;
+import com.genius.search.SongRanker;
+import com.genius.search.Suggestion;
+import com.genius.search.Tokenizer;
+import com.genius.search.TrigramIndex;
+import com.genius.util.codec.BinaryReader;
+import com.genius.util.codec.BinaryWriter;
+import com.genius.util.codec.CatalogCodec;
+import com.genius.util.codec.CatalogSnapshot;
+import com.genius.util.codec.CodecContext;
+import com.genius.util.storage.LogStructuredStorage;
+import com.genius.util.storage.StorageBackend;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory catalog persisted through a {@link StorageBackend}.
+ *
+ * <p>Each entity type lives in its own {@link ConcurrentTable}, so reads never lock
+ * and writers of different types never contend. Mutations hold the shared side of
+ * the checkpoint lock; a checkpoint takes the exclusive side so the snapshot and
+ * the log sequence it records agree.</p>
+ */
+public class Database {
+    public static final String DATA_FILE = "music_platform_data.db";
+    public static final String LOG_FILE = "music_platform_data.wal";
+    public static final String LYRICS_FILE = "music_platform_lyrics.blob";
+    public static final String LYRICS_CACHE_DIR = "music_platform_lyrics_cache";
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int DEFAULT_FLUSH_THRESHOLD = 64;
+
+    private enum Op {
+        ADD_ACCOUNT,
+        ADD_SONG,
+        ADD_ALBUM,
+        ADD_ARTIST_FOR_APPROVAL,
+        REMOVE_ARTIST_FOR_APPROVAL,
+        ADD_USER_NOTIFICATION,
+        ADD_ARTIST_NOTIFICATION,
+        SET_LYRICS,
+        ADD_COMMENT
+    }
 
-
-public class Database implements Serializable {
-    private static final long serialVersionUID = 1L;
-    private static final String DATA_FILE = "music_platform_data.ser";
-
-
-    private List<Album> albums;
-    private List<Comment> comments;
-    private List<LyricEdit> lyricEdits;
-    private List<Artist> artistsForApproval;
-    private  List<Song> songs = new ArrayList<>();
-    private List<Account> accounts = new ArrayList<>();
+    @FunctionalInterface
+    private interface RecordBody {
+        void write(BinaryWriter out) throws IOException;
+    }
 
 
+    private final ConcurrentTable<Album> albums = new ConcurrentTable<>();
+    private final ConcurrentTable<Comment> comments = new ConcurrentTable<>();
+    private final ConcurrentTable<LyricEdit> lyricEdits = new ConcurrentTable<>();
+    private final ConcurrentTable<Artist> artistsForApproval = new ConcurrentTable<>();
+    private final ConcurrentTable<Song> songs = new ConcurrentTable<>();
+    private final ConcurrentTable<Account> accounts = new ConcurrentTable<>();
+    // Case-folded username -> account, kept in step with accounts
+    private final Map<String, Account> accountsByUsername = new ConcurrentHashMap<>();
+    // Genius song id -> stored song, guarded by the songs stripe and rebuilt on load
+    private final IntHashMap<Song> songsByGeniusId = new IntHashMap<>();
+    // Title and artist name tokens -> song catalog ids, guarded by the songs stripe
+    private final SongIndex songIndex = new SongIndex();
+    // Title and artist name trigrams -> song catalog ids, guarded by the songs stripe
+    private final TrigramIndex trigramIndex = new TrigramIndex();
+    // Lyrics tokens with positions, thread-safe on its own
+    private final LyricsIndex lyricsIndex = new LyricsIndex();
+    // Released once the lyrics of the songs there were at startup are indexed
+    private final CountDownLatch lyricsIndexBuilt = new CountDownLatch(1);
+    // Song titles and artist names weighted by views, thread-safe on its own
+    private final Autocomplete autocomplete = new Autocomplete();
+    // Case-folded artist name -> first registered artist with that name
+    private final Map<String, Artist> artistsByName = new ConcurrentHashMap<>();
+    // Case-folded artist name -> completes with the artist getOrCreateArtist is storing under it
+    private final Map<String, CompletableFuture<Artist>> artistsBeingCreated = new ConcurrentHashMap<>();
+
+    // Notifications, keyed by case-folded username
+    private final Map<String, List<String>> userNotifications = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> artistNotifications = new ConcurrentHashMap<>();
+
+    // Shared by mutations, exclusive for checkpoints
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    // Sequence number of the last logged mutation, guarded by logLock
+    private long lastSequence;
+    private volatile boolean checkpointRequested;
+
+    private final StorageBackend storage;
+    // Where song lyrics live off the heap; null keeps them on the songs themselves
+    private final LyricsStore lyricsStore;
+    // Guards lastSequence and keeps records reaching the backend in sequence order
+    private final Object logLock = new Object();
+    private final PersistenceScheduler scheduler;
+    // Writes captured snapshots off the request path, one at a time
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "snapshot-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean replaying;
 
+    public Database() {
+        this(new LogStructuredStorage(DATA_FILE, LOG_FILE, LYRICS_FILE));
+    }
 
-    // Notifications
-    private Map<User, List<String>> userNotifications;
-    private Map<Artist, List<String>> artistNotifications;
+    public Database(StorageBackend storage) {
+        this(storage, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_THRESHOLD);
+    }
 
-    public Database() {
-        this.accounts = new ArrayList<>();
-        this.songs = new ArrayList<>();
-        this.albums = new ArrayList<>();
-        this.comments = new ArrayList<>();
-        this.lyricEdits = new ArrayList<>();
-        this.artistsForApproval = new ArrayList<>();
-        this.userNotifications = new HashMap<>();
-        this.artistNotifications = new HashMap<>();
+    /**
+     * @param storage             Where the catalog is persisted
+     * @param flushIntervalMillis Maximum time a mutation may stay unflushed
+     * @param flushThreshold      Number of pending mutations that triggers an early flush
+     */
+    public Database(StorageBackend storage, long flushIntervalMillis, int flushThreshold) {
+        this.storage = storage;
+        this.lyricsStore = storage.getLyricsStore();
         loadData();
+        replayLog();
+        buildLyricsIndex();
+        this.scheduler = new PersistenceScheduler(this::flush, flushIntervalMillis, flushThreshold);
     }
 
     // Account methods
-    public void addAccount(Account account) {
-        if (account != null && !accounts.contains(account)) {
+
+    /**
+     * Adds an account unless its username (compared case-insensitively) is already taken.
+     *
+     * @param account The account to add
+     * @return true if the account is stored, including when this same account was already present
+     */
+    public boolean addAccount(Account account) {
+        if (!insertAccount(account)) {
+            return false;
+        }
+        if (account instanceof Artist artist && artist.getName() != null
+                && artistsByName.putIfAbsent(normalizeName(artist.getName()), artist) == null) {
+            autocomplete.addArtist(artist);
+        }
+        return true;
+    }
+
+    // Stores the account and its username index entry, without touching the artist name index
+    private boolean insertAccount(Account account) {
+        if (account == null || account.getUsername() == null) {
+            return false;
+        }
+        return mutate(accounts, () -> {
+            Account existing = accountsByUsername.putIfAbsent(normalizeUsername(account.getUsername()), account);
+            if (existing != null) {
+                return existing == account;
+            }
             accounts.add(account);
-            saveData();
+            logMutation(Op.ADD_ACCOUNT, out -> CatalogCodec.ACCOUNT.write(out, account));
+            return true;
+        });
+    }
+
+    public Account getAccountByUsername(String username) {
+        return username != null ? accountsByUsername.get(normalizeUsername(username)) : null;
+    }
+
+    /**
+     * Finds a registered artist by display name, ignoring case.
+     *
+     * @param name The artist's name
+     * @return The artist, or null if none is registered under that name
+     */
+    public Artist getArtistByName(String name) {
+        return name != null ? artistsByName.get(normalizeName(name)) : null;
+    }
+
+    /**
+     * Returns the artist registered under the given name, creating and storing one
+     * with the factory if there is none. Concurrent callers asking for the same name
+     * wait for one of them to store the artist and share it. The factory and the
+     * account insert run outside any map lock, so callers asking for other names
+     * never wait. If another account takes the new artist's username before it is
+     * stored, the factory is called again and must then choose a different username.
+     *
+     * @param name    The artist's name
+     * @param factory Creates the artist when the name is unknown
+     * @return The existing or newly created artist, or null if the new artist could not be stored
+     */
+    public Artist getOrCreateArtist(String name, Function<String, Artist> factory) {
+        String key = normalizeName(name);
+        Artist artist = artistsByName.get(key);
+        if (artist != null) {
+            return artist;
+        }
+        // Only the thread whose claim goes in creates the artist, so no duplicate account is stored
+        CompletableFuture<Artist> claim = new CompletableFuture<>();
+        CompletableFuture<Artist> running = artistsBeingCreated.putIfAbsent(key, claim);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            artist = artistsByName.get(key); // Stored between the first look and the claim
+            if (artist != null) {
+                return artist;
+            }
+            Artist created = insertNewArtist(name, factory);
+            if (created == null) {
+                return null;
+            }
+            artist = artistsByName.putIfAbsent(key, created);
+            if (artist != null) {
+                return artist; // Registered under the same name meanwhile; the new account stays a plain account
+            }
+            artist = created;
+            autocomplete.addArtist(created);
+            return artist;
+        } finally {
+            artistsBeingCreated.remove(key, claim);
+            claim.complete(artist);
         }
+    }
 
+    // Stores a new artist from the factory. Names such as "AC/DC" and "AC DC" can race for one
+    // username; the loser asks the factory for another
+    private Artist insertNewArtist(String name, Function<String, Artist> factory) {
+        Artist candidate = factory.apply(name);
+        while (!insertAccount(candidate)) {
+            String taken = candidate != null ? candidate.getUsername() : null;
+            if (taken == null || getAccountByUsername(taken) == null) {
+                return null;
+            }
+            candidate = factory.apply(name);
+            if (candidate != null && candidate.getUsername() != null
+                    && normalizeUsername(candidate.getUsername()).equals(normalizeUsername(taken))) {
+                return null; // The factory cannot avoid the clash
+            }
+        }
+        return candidate;
+    }
 
+    private static String normalizeUsername(String username) {
+        return username.toLowerCase(Locale.ROOT);
     }
 
-    public Account getAccountByUsername(String username) {
-        return accounts.stream()
-                .filter(a -> a.getUsername().equalsIgnoreCase(username))
-                .findFirst()
-                .orElse(null);
+    private static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Writes a full snapshot and waits until it is on disk.
+     */
+    public void saveData() {
+        try {
+            await(checkpoint());
+        } catch (IOException e) {
+            System.err.println("Error saving data: " + e.getMessage());
+        }
     }
 
+    /**
+     * Captures a snapshot and hands it to the compactor. Mutations are paused only
+     * while the backend rotates its records and the catalog is encoded, not while
+     * the snapshot is written.
+     *
+     * @return Completes once the snapshot is written, or null if there is nothing to wait for
+     * @throws IOException if the catalog could not be captured, or written when that happened on this thread
+     */
+    private Future<?> checkpoint() throws IOException {
+        if (!storage.isDurable()) {
+            return null;
+        }
+
+        byte[] encoded;
+        checkpointLock.writeLock().lock();
+        try {
+            storage.rotate();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            CatalogCodec.write(buffer, toSnapshot());
+            encoded = buffer.toByteArray();
+            checkpointRequested = false;
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
 
-    public synchronized void saveData() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(
-                new FileOutputStream(DATA_FILE))) {
-            oos.writeObject(this);
+        try {
+            return compactor.submit(() -> {
+                writeSnapshot(encoded);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            writeSnapshot(encoded); // Closing; write it on this thread instead
+            return null;
+        }
+    }
+
+    private void writeSnapshot(byte[] encoded) throws IOException {
+        try {
+            storage.checkpoint(encoded);
         } catch (IOException e) {
             System.err.println("Error saving data: " + e.getMessage());
+            checkpointRequested = true; // Try again on the next flush
+            throw e;
         }
     }
 
+    private static void await(Future<?> task) throws IOException {
+        if (task == null) {
+            return;
+        }
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the snapshot");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
 
-    @SuppressWarnings("unchecked")
-    private synchronized void loadData() {
-        File file = new File(DATA_FILE);
 
-        if (file.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new FileInputStream(DATA_FILE))) {
-                Database loaded = (Database) ois.readObject();
+    /**
+     * Blocks until every mutation made so far has reached the disk.
+     *
+     * @throws IOException if the mutations could not be flushed; they stay in memory and a later flush retries them
+     */
+    public void awaitDurable() throws IOException {
+        try {
+            scheduler.awaitDurable();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the disk");
+        }
+    }
+
+    /**
+     * Flushes pending mutations, writes a final snapshot, stops the background
+     * flusher and releases the storage backend. The snapshot also captures changes
+     * made on the objects without a log record, such as view counts, follows and comments.
+     */
+    public void close() {
+        scheduler.close();
+        saveData();
+        try {
+            lyricsIndexBuilt.await(30, TimeUnit.SECONDS); // The build reads lyrics from the store
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            System.err.println("Error closing storage: " + e.getMessage());
+        }
+    }
+
+    // Makes logged records durable and checkpoints whenever the backend asks for it.
+    // Throws if the mutations could not be made durable, so the scheduler does not count them as such
+    private void flush() {
+        boolean synced = true;
+        try {
+            storage.sync();
+        } catch (IOException e) {
+            System.err.println("Error syncing log: " + e.getMessage());
+            checkpointRequested = true; // Fall back to a full snapshot so the mutations are not lost
+            synced = false;
+        }
+
+        if (checkpointRequested || storage.isCheckpointDue()) {
+            try {
+                Future<?> written = checkpoint();
+                if (!synced || !storage.retainsRecords()) {
+                    await(written); // The snapshot is the only durable copy
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Mutations are not on disk", e);
+            }
+        }
+    }
 
-                this.accounts = new ArrayList<>();
-                this.songs = new ArrayList<>();
-                this.albums = new ArrayList<>();
-                this.comments = new ArrayList<>();
-                this.lyricEdits = new ArrayList<>();
-                this.artistsForApproval = new ArrayList<>();
-                this.userNotifications = new HashMap<>();
-                this.artistNotifications = new HashMap<>();
 
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error loading data: " + e.getMessage());
-                this.accounts = new ArrayList<>();
-                this.songs = new ArrayList<>();
+    // Indexes the lyrics of the songs there were at startup off the startup path, since it reads
+    // every song's lyrics from the store and loading never does. Songs added or changed meanwhile
+    // are indexed as usual
+    private void buildLyricsIndex() {
+        List<Song> existing = songs.snapshot();
+        if (existing.isEmpty()) {
+            lyricsIndexBuilt.countDown();
+            return;
+        }
+        Thread builder = new Thread(() -> {
+            try {
+                lyricsIndex.addAll(existing);
+            } catch (RuntimeException e) {
+                System.err.println("Error indexing lyrics: " + e.getMessage());
+            } finally {
+                lyricsIndexBuilt.countDown();
             }
+        }, "lyrics-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void loadData() {
+        try {
+            CatalogSnapshot loaded = storage.load();
+            if (loaded != null) {
+                List<Account> uniqueAccounts = new ArrayList<>();
+                for (Account account : loaded.accounts) {
+                    if (accountsByUsername.putIfAbsent(normalizeUsername(account.getUsername()), account) == null) {
+                        uniqueAccounts.add(account);
+                        if (account instanceof Artist artist && artist.getName() != null) {
+                            artistsByName.putIfAbsent(normalizeName(artist.getName()), artist);
+                        }
+                    } else {
+                        System.err.println("Dropping duplicate account: " + account.getUsername());
+                    }
+                }
+                accounts.replaceAll(uniqueAccounts);
+                songs.replaceAll(loaded.songs);
+                for (Song song : loaded.songs) {
+                    if (song.getGeniusId() != null) {
+                        songsByGeniusId.putIfAbsent(song.getGeniusId(), song);
+                    }
+                    songIndex.add(song);
+                    trigramIndex.add(song);
+                    song.setLyricsListener(this::lyricsChanged);
+                    autocomplete.addSong(song);
+                }
+                // Artists go in after their songs so their weight counts every song once
+                artistsByName.values().forEach(autocomplete::addArtist);
+                albums.replaceAll(loaded.albums);
+                // Songs own their comments; the table only gathers them for getComments
+                List<Comment> loadedComments = new ArrayList<>();
+                for (Song song : loaded.songs) {
+                    loadedComments.addAll(song.getComments());
+                }
+                comments.replaceAll(loadedComments);
+                lyricEdits.replaceAll(loaded.lyricEdits);
+                artistsForApproval.replaceAll(loaded.artistsForApproval);
+                loaded.userNotifications.forEach((username, messages) ->
+                        userNotifications.put(normalizeUsername(username), new CopyOnWriteArrayList<>(messages)));
+                loaded.artistNotifications.forEach((username, messages) ->
+                        artistNotifications.put(normalizeUsername(username), new CopyOnWriteArrayList<>(messages)));
+                this.lastSequence = loaded.lastSequence;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading data: " + e.getMessage());
         }
     }
 
+    // Callers hold the checkpoint write lock, so no mutation is half applied
+    private CatalogSnapshot toSnapshot() {
+        CatalogSnapshot snapshot = new CatalogSnapshot();
+        snapshot.accounts.addAll(accounts.snapshot());
+        snapshot.artistsForApproval.addAll(artistsForApproval.snapshot());
+        snapshot.songs.addAll(songs.snapshot());
+        snapshot.albums.addAll(albums.snapshot());
+        snapshot.lyricEdits.addAll(lyricEdits.snapshot());
+        userNotifications.forEach((username, messages) ->
+                snapshot.userNotifications.put(username, new ArrayList<>(messages)));
+        artistNotifications.forEach((username, messages) ->
+                snapshot.artistNotifications.put(username, new ArrayList<>(messages)));
+        synchronized (logLock) {
+            snapshot.lastSequence = lastSequence;
+        }
+        return snapshot;
+    }
+
+    // Re-applies every logged mutation newer than the loaded snapshot
+    private void replayLog() {
+        CodecContext context = new CodecContext(this::findAccount, songs::get, lyricsStore);
+        replaying = true;
+        try {
+            for (byte[] record : storage.readRecords()) {
+                try {
+                    BinaryReader in = new BinaryReader(new ByteArrayInputStream(record));
+                    long sequence = in.readVarLong();
+                    int opOrdinal = in.readByte();
+                    if (sequence <= lastSequence) {
+                        continue; // Already folded into the snapshot
+                    }
+                    apply(Op.values()[opOrdinal], in, context);
+                    context.resolveDeferred();
+                    lastSequence = sequence;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Skipping unreadable log record: " + e.getMessage());
+                }
+            }
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private void apply(Op op, BinaryReader in, CodecContext context) throws IOException {
+        switch (op) {
+            case ADD_ACCOUNT -> addAccount(CatalogCodec.ACCOUNT.read(in, context));
+            case ADD_SONG -> addSong(CatalogCodec.SONG.read(in, context));
+            case ADD_ALBUM -> addAlbum(CatalogCodec.ALBUM.read(in, context));
+            case ADD_ARTIST_FOR_APPROVAL -> {
+                if (CatalogCodec.ACCOUNT.read(in, context) instanceof Artist artist) {
+                    addArtistForApproval(artist);
+                }
+            }
+            case REMOVE_ARTIST_FOR_APPROVAL -> {
+                if (findAccount(in.readString()) instanceof Artist artist) {
+                    removeArtistForApproval(artist);
+                }
+            }
+            case ADD_USER_NOTIFICATION -> {
+                Account account = findAccount(in.readString());
+                String message = in.readText();
+                if (account instanceof User user) {
+                    addUserNotification(user, message);
+                }
+            }
+            case ADD_ARTIST_NOTIFICATION -> {
+                Account account = findAccount(in.readString());
+                String message = in.readText();
+                if (account instanceof Artist artist) {
+                    addArtistNotification(artist, message);
+                }
+            }
+            case SET_LYRICS -> {
+                Song song = songs.get(in.readVarInt());
+                long handle = in.readVarLong() - 1;
+                String text = handle == LyricsStore.NO_HANDLE ? in.readText() : null;
+                if (song == null) {
+                    return;
+                }
+                if (text != null) {
+                    song.setLyrics(text);
+                } else if (lyricsStore != null) {
+                    song.restoreLyrics(lyricsStore, handle);
+                    lyricsIndex.update(song);
+                }
+            }
+            case ADD_COMMENT -> {
+                Song song = songs.get(in.readVarInt());
+                Comment comment = CatalogCodec.COMMENT.read(in, context);
+                if (song != null && comment != null) {
+                    addComment(song, comment);
+                }
+            }
+        }
+    }
+
+    // Looks up registered accounts first, then artists still waiting for approval
+    private Account findAccount(String username) {
+        Account account = getAccountByUsername(username);
+        if (account != null) {
+            return account;
+        }
+        for (Artist pending : artistsForApproval.snapshot()) {
+            if (pending.getUsername().equalsIgnoreCase(username)) {
+                return pending;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a mutation while holding the shared checkpoint lock and the table's
+     * stripe. Logging inside the stripe keeps each table's log order equal to its
+     * row order, which catalog ids rely on.
+     */
+    private <T> T mutate(ConcurrentTable<?> table, Supplier<T> mutation) {
+        Lock checkpoint = checkpointLock.readLock();
+        Lock stripe = table.lock().writeLock();
+        checkpoint.lock();
+        stripe.lock();
+        try {
+            return mutation.get();
+        } finally {
+            stripe.unlock();
+            checkpoint.unlock();
+        }
+    }
+
+    private void logMutation(Op op, RecordBody body) {
+        if (replaying || !storage.isDurable()) {
+            return;
+        }
+
+        synchronized (logLock) {
+            long sequence = lastSequence + 1;
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try {
+                BinaryWriter out = new BinaryWriter(buffer);
+                out.writeVarLong(sequence);
+                out.writeByte(op.ordinal());
+                body.write(out);
+            } catch (IOException e) {
+                System.err.println("Error encoding " + op + ": " + e.getMessage());
+                return;
+            }
+
+            try {
+                storage.append(buffer.toByteArray());
+                lastSequence = sequence;
+            } catch (IOException e) {
+                System.err.println("Error appending to log: " + e.getMessage());
+                checkpointRequested = true; // The next flush snapshots instead, so the mutation is not lost
+            }
+        }
+        scheduler.markDirty();
+    }
+
 
     public List<Account> getAccounts() {
-        return Collections.unmodifiableList(accounts);
+        return accounts.snapshot();
     }
     // Song methods
     public void addSong(Song song) {
-        songs.add(song);
-        saveData();
+        addSongIfAbsent(song);
+    }
 
+    /**
+     * Stores the song unless another song with the same Genius id is already stored.
+     *
+     * @param song The song to add
+     * @return The song that is stored under that Genius id: the existing one, or this song
+     */
+    public Song addSongIfAbsent(Song song) {
+        Song stored = mutate(songs, () -> {
+            Integer geniusId = song.getGeniusId();
+            if (geniusId != null) {
+                Song existing = songsByGeniusId.putIfAbsent(geniusId, song);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            if (lyricsStore != null) {
+                song.storeLyricsIn(lyricsStore);
+            }
+            song.setId(songs.size());
+            songs.add(song);
+            songIndex.add(song);
+            trigramIndex.add(song);
+            logMutation(Op.ADD_SONG, out -> CatalogCodec.SONG.write(out, song));
+            return song;
+        });
+        if (stored == song) {
+            song.setLyricsListener(this::lyricsChanged);
+            lyricsIndex.update(song);
+            autocomplete.addSong(song);
+        }
+        return stored;
+    }
+
+    // Re-indexes and logs lyrics changed on a stored song, e.g. by a lyric fetch or an approved edit.
+    // Pending placeholders are not logged: they are not the song's lyrics, and it fetches them again after a restart
+    private void lyricsChanged(Song song) {
+        lyricsIndex.update(song);
+        if (Song.isPendingLyrics(song.getLyrics())) {
+            return;
+        }
+        Lock checkpoint = checkpointLock.readLock();
+        checkpoint.lock();
+        try {
+            logMutation(Op.SET_LYRICS, out -> {
+                out.writeVarInt(song.getId());
+                long handle = song.getLyricsHandle();
+                out.writeVarLong(handle + 1); // 0 means the text follows inline
+                if (handle == LyricsStore.NO_HANDLE) {
+                    out.writeText(song.getLyrics());
+                }
+            });
+        } finally {
+            checkpoint.unlock();
+        }
+    }
+
+    /**
+     * Finds songs by a remembered lyric. Quoted text must appear as an exact
+     * phrase; otherwise all words must occur close together. Answered from the
+     * lyrics index without scanning lyrics.
+     *
+     * @param query A lyric fragment, e.g. "\"players gonna play\"" or "haters hate"
+     * @param limit Maximum number of songs to return
+     * @return One match per song, with the matching line as a snippet; until
+     *         {@link #isLyricsIndexReady()}, only songs added or changed since startup
+     */
+    public List<LyricsMatch> searchLyrics(String query, int limit) {
+        List<LyricsMatch> matches = new ArrayList<>();
+        for (LyricsIndex.Hit hit : lyricsIndex.search(query, limit)) {
+            Song song = songs.get(hit.songId);
+            if (song != null) {
+                matches.add(new LyricsMatch(song, hit.lineNumber,
+                        LyricsIndex.line(song.getLyrics(), hit.lineNumber)));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return Whether the lyrics of the songs loaded at startup are indexed yet; until
+     *         then lyric search and the lyrics part of ranked search miss them
+     */
+    public boolean isLyricsIndexReady() {
+        return lyricsIndexBuilt.getCount() == 0;
+    }
+
+    /**
+     * Waits for the lyrics of the songs loaded at startup to be indexed.
+     *
+     * @return Whether they were indexed within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitLyricsIndex(long timeout, TimeUnit unit) throws InterruptedException {
+        return lyricsIndexBuilt.await(timeout, unit);
+    }
+
+    /**
+     * Completes a partly typed song title or artist name, for type-ahead.
+     *
+     * @param prefix What has been typed so far, e.g. "shake i"
+     * @param limit  Maximum number of completions
+     * @return Titles and names starting with the prefix, most viewed first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return autocomplete.suggest(prefix, limit);
+    }
+
+    /**
+     * @param geniusId The song's id on Genius
+     * @return The stored song with that id, or null if it has not been imported
+     */
+    public Song getSongByGeniusId(int geniusId) {
+        Lock stripe = songs.lock().readLock();
+        stripe.lock();
+        try {
+            return songsByGeniusId.get(geniusId);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Finds stored songs whose title and artist name words match the query's
+     * words within a few typos each.
+     *
+     * @param query       Free text, possibly misspelled, e.g. "shaek it of"
+     * @param maxDistance Most edits allowed per word
+     * @return Matching songs, closest first
+     */
+    public List<Song> searchSongsFuzzy(String query, int maxDistance) {
+        int[] ids;
+        Lock stripe = songs.lock().readLock();
+        stripe.lock();
+        try {
+            ids = songIndex.searchFuzzy(query, maxDistance);
+        } finally {
+            stripe.unlock();
+        }
+
+        List<Song> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(songs.get(id));
+        }
+        return matches;
+    }
+
+    /**
+     * Finds stored songs by relevance: BM25 over titles, artist names and lyrics,
+     * blended with how often each song was viewed. Scored from the index
+     * statistics alone; only the best songs are kept. Until {@link #isLyricsIndexReady()},
+     * the lyrics of songs loaded at startup do not count.
+     *
+     * @param query Free text; a song matches if it contains any of the words
+     * @param limit Maximum number of songs to return
+     * @return The best matches, best first
+     */
+    public List<Song> searchSongsRanked(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(Tokenizer.tokens(query));
+        SongRanker ranker = new SongRanker();
+        Lock stripe = songs.lock().readLock();
+        stripe.lock();
+        try {
+            songIndex.score(tokens, ranker);
+        } finally {
+            stripe.unlock();
+        }
+        lyricsIndex.score(tokens, ranker);
+
+        int[] ids = ranker.top(limit, id -> {
+            Song song = songs.get(id);
+            return song != null ? song.getViews() : 0;
+        });
+        List<Song> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(songs.get(id));
+        }
+        return matches;
+    }
+
+    /**
+     * Finds stored songs whose title or an artist's name contains the query,
+     * ignoring case and accents, e.g. "swif" finds Taylor Swift's songs.
+     * Narrowed by the trigram index, so only likely matches are checked.
+     *
+     * @param query Any fragment of a title or artist name
+     * @return Matching songs in catalog order
+     */
+    public List<Song> searchSongsContaining(String query) {
+        int[] ids;
+        Lock stripe = songs.lock().readLock();
+        stripe.lock();
+        try {
+            ids = trigramIndex.search(query, songs::get);
+        } finally {
+            stripe.unlock();
+        }
+
+        List<Song> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(songs.get(id));
+        }
+        return matches;
     }
 
     public List<Song> getSongs() {
-        return Collections.unmodifiableList(songs);
+        return songs.snapshot();
 
     }
     // Album methods
     public void addAlbum(Album album) {
-        albums.add(album);
-        saveData();
+        mutate(albums, () -> {
+            albums.add(album);
+            logMutation(Op.ADD_ALBUM, out -> CatalogCodec.ALBUM.write(out, album));
+            return null;
+        });
+    }
+
+    /**
+     * Adds a comment to a stored song.
+     *
+     * @param song    The song being commented on
+     * @param comment The new comment
+     */
+    public void addComment(Song song, Comment comment) {
+        mutate(comments, () -> {
+            song.addComment(comment);
+            comments.add(comment);
+            logMutation(Op.ADD_COMMENT, out -> {
+                out.writeVarInt(song.getId());
+                CatalogCodec.COMMENT.write(out, comment);
+            });
+            return null;
+        });
     }
 
     public List<Comment> getComments() {
-        return new ArrayList<>(comments);
+        return new ArrayList<>(comments.snapshot());
     }
 
     public List<LyricEdit> getLyricEdits() {
-        return new ArrayList<>(lyricEdits);
+        return new ArrayList<>(lyricEdits.snapshot());
     }
 
     // Artist approval methods
     public void addArtistForApproval(Artist artist) {
-        artistsForApproval.add(artist);
-        saveData();
+        mutate(artistsForApproval, () -> {
+            artistsForApproval.add(artist);
+            logMutation(Op.ADD_ARTIST_FOR_APPROVAL, out -> CatalogCodec.ACCOUNT.write(out, artist));
+            return null;
+        });
     }
 
     public void removeArtistForApproval(Artist artist) {
-        artistsForApproval.remove(artist);
-        saveData();
+        mutate(artistsForApproval, () -> {
+            artistsForApproval.remove(artist);
+            logMutation(Op.REMOVE_ARTIST_FOR_APPROVAL, out -> out.writeString(artist.getUsername()));
+            return null;
+        });
     }
 
     public List<Artist> getArtistsForApproval() {
-        return new ArrayList<>(artistsForApproval);
+        return new ArrayList<>(artistsForApproval.snapshot());
     }
 
     // Notification methods
     public void addUserNotification(User user, String message) {
-        userNotifications.computeIfAbsent(user, k -> new ArrayList<>()).add(message);
-        saveData();
+        addNotification(userNotifications, Op.ADD_USER_NOTIFICATION, user, message);
     }
 
     public void addArtistNotification(Artist artist, String message) {
-        artistNotifications.computeIfAbsent(artist, k -> new ArrayList<>()).add(message);
-        saveData();
+        addNotification(artistNotifications, Op.ADD_ARTIST_NOTIFICATION, artist, message);
+    }
+
+    private void addNotification(Map<String, List<String>> notifications, Op op, Account account, String message) {
+        Lock checkpoint = checkpointLock.readLock();
+        checkpoint.lock();
+        try {
+            notifications.computeIfAbsent(normalizeUsername(account.getUsername()),
+                    k -> new CopyOnWriteArrayList<>()).add(message);
+            logMutation(op, out -> {
+                out.writeString(account.getUsername());
+                out.writeText(message);
+            });
+        } finally {
+            checkpoint.unlock();
+        }
     }
 
     public List<String> getUserNotifications(User user) {
-        return new ArrayList<>(userNotifications.getOrDefault(user, new ArrayList<>()));
+        return new ArrayList<>(userNotifications.getOrDefault(normalizeUsername(user.getUsername()), List.of()));
 
     }
 
     public List<String> getArtistNotifications(Artist artist) {
-        return new ArrayList<>(artistNotifications.getOrDefault(artist, new ArrayList<>()));
+        return new ArrayList<>(artistNotifications.getOrDefault(normalizeUsername(artist.getUsername()), List.of()));
     }
 
-}
\ No newline at end of file
+}
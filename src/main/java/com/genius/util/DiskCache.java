@@ -0,0 +1,283 @@
+package com.genius.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistent cache of byte values, one compressed file per key in a directory.
+ *
+ * <p>A file is named after the SHA-256 of its key and holds the key, the
+ * value's length and CRC32, and the deflated value. A file that is truncated,
+ * fails to inflate, belongs to another key or fails its checksum is deleted and
+ * counted as a miss. Files are written to a temporary name and renamed into
+ * place, so a crash never leaves a half-written entry under a real name.</p>
+ *
+ * <p>The total size of the files is bounded; past it, the least recently used
+ * entries are deleted. Use is tracked through the files' modification times, so
+ * the order survives a restart. Thread-safe; compressing, writing and reading
+ * entries happen outside the lock, which only guards the index.</p>
+ */
+public class DiskCache {
+    private static final int MAGIC = 0x474C4331; // "GLC1"
+    private static final String SUFFIX = ".bin";
+
+    private final File directory;
+    private final long maxBytes;
+    // File name to size, least recently used first; loaded on first use
+    private LinkedHashMap<String, Long> files;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long corrupt;
+    private long evictions;
+
+    /**
+     * Counters since the cache was opened, and its current size on disk.
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long corrupt;
+        public final long evictions;
+        public final int entries;
+        public final long bytes;
+
+        Stats(long hits, long misses, long corrupt, long evictions, int entries, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.corrupt = corrupt;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d corrupt=%d evictions=%d entries=%d bytes=%d",
+                    hits, misses, corrupt, evictions, entries, bytes);
+        }
+    }
+
+    /**
+     * @param directory Where the entries are kept; created if missing
+     * @param maxBytes  Bound on the total size of the entries' files
+     */
+    public DiskCache(String directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Size bound must be positive");
+        }
+        this.directory = new File(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param key Identifies the value
+     * @return The value, or null if it is not cached or its entry was damaged
+     */
+    public byte[] get(String key) {
+        String name = fileName(key);
+        synchronized (this) {
+            if (!index().containsKey(name)) {
+                misses++;
+                return null;
+            }
+            files.get(name); // Mark as recently used
+        }
+
+        File file = new File(directory, name);
+        try {
+            byte[] value = decode(key, Files.readAllBytes(file.toPath()));
+            file.setLastModified(System.currentTimeMillis());
+            synchronized (this) {
+                hits++;
+            }
+            return value;
+        } catch (NoSuchFileException e) {
+            synchronized (this) {
+                misses++; // Evicted meanwhile
+                forget(name);
+            }
+            return null;
+        } catch (IOException e) {
+            System.err.println("Dropping damaged cache entry " + name + ": " + e.getMessage());
+            synchronized (this) {
+                corrupt++;
+                misses++;
+                forget(name);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the value, replacing any previous one for the key. Failures are
+     * reported and otherwise ignored, since the value can always be fetched again.
+     */
+    public void put(String key, byte[] value) {
+        String name = fileName(key);
+        try {
+            byte[] encoded = encode(key, value);
+            if (encoded.length > maxBytes) {
+                return; // Would push out everything else
+            }
+            synchronized (this) {
+                index(); // Loading the index deletes temporary files, so it must not happen mid-write
+            }
+            File temp = File.createTempFile("entry", ".tmp", directory);
+            try {
+                Files.write(temp.toPath(), encoded);
+                moveIntoPlace(temp, new File(directory, name));
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+            synchronized (this) {
+                Long previous = files.put(name, (long) encoded.length);
+                bytes += encoded.length - (previous != null ? previous : 0);
+                evict();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not cache " + key + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized Stats getStats() {
+        index();
+        return new Stats(hits, misses, corrupt, evictions, files.size(), bytes);
+    }
+
+    // Callers hold the lock
+    private Map<String, Long> index() {
+        if (files != null) {
+            return files;
+        }
+        files = new LinkedHashMap<>(64, 0.75f, true);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.err.println("Could not create cache directory " + directory);
+            return files;
+        }
+        File[] found = directory.listFiles();
+        if (found == null) {
+            return files;
+        }
+        Arrays.sort(found, Comparator.comparingLong(File::lastModified));
+        for (File file : found) {
+            if (file.getName().endsWith(".tmp")) {
+                file.delete(); // Left by a crash mid-write
+            } else if (file.getName().endsWith(SUFFIX)) {
+                files.put(file.getName(), file.length());
+                bytes += file.length();
+            }
+        }
+        evict();
+        return files;
+    }
+
+    // Callers hold the lock
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = files.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            new File(directory, entry.getKey()).delete();
+            bytes -= entry.getValue();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // Callers hold the lock
+    private void forget(String name) {
+        Long size = files.remove(name);
+        if (size != null) {
+            bytes -= size;
+        }
+        new File(directory, name).delete();
+    }
+
+    private static void moveIntoPlace(File temp, File target) throws IOException {
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] encode(String key, byte[] value) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(value.length / 2 + 64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeUTF(key);
+        out.writeInt(value.length);
+        out.writeLong(crc.getValue());
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater)) {
+            deflated.write(value);
+        } finally {
+            deflater.end();
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] decode(String key, byte[] entry) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cache entry");
+        }
+        if (!key.equals(in.readUTF())) {
+            throw new IOException("Entry belongs to another key");
+        }
+        int length = in.readInt();
+        long expected = in.readLong();
+        if (length < 0) {
+            throw new IOException("Bad length");
+        }
+        byte[] value = new byte[length];
+        try (InputStream inflated = new InflaterInputStream(in)) {
+            if (inflated.readNBytes(value, 0, length) != length) {
+                throw new IOException("Entry is truncated");
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(value);
+        if (crc.getValue() != expected) {
+            throw new IOException("Checksum mismatch");
+        }
+        return value;
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.genius.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only file of song lyrics, read through memory maps.
+ *
+ * <p>Each stored text is addressed by a handle that packs its byte offset and
+ * length into one long, so a Song only has to keep that handle on the heap and
+ * decodes the text when it is actually read. Replaced lyrics are never
+ * overwritten; their old bytes simply stop being referenced.</p>
+ *
+ * <p>The file is mapped in fixed-size chunks, each once it is full, so the
+ * store is not bound by the 2 GB limit of a single mapping and appending never
+ * forces a remap. Texts in the partial last chunk, or spanning two chunks, are
+ * read from the file directly.</p>
+ */
+public class LyricsStore implements Closeable {
+    public static final long NO_HANDLE = -1;
+
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final int CHUNK_BITS = 26; // 64 MB
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+    private final File file;
+    private FileChannel channel;
+    private long size;
+    // Mapped full chunks by index; null where no read has needed one yet
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    public LyricsStore(String path) {
+        this.file = new File(path);
+    }
+
+    /**
+     * Appends the text to the store. The bytes are written but not forced to
+     * disk; call {@link #sync()} before persisting anything that holds the handle.
+     *
+     * @param text The lyrics to store
+     * @return Handle for reading the text back
+     * @throws IOException if the text could not be written
+     */
+    public synchronized long put(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > LENGTH_MASK) {
+            throw new IOException("Lyrics too large to store: " + bytes.length + " bytes");
+        }
+        FileChannel ch = channel();
+        long offset = size;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            ch.write(buffer, offset + buffer.position());
+        }
+        size += bytes.length;
+        return offset << LENGTH_BITS | bytes.length;
+    }
+
+    /**
+     * Decodes the text stored under a handle.
+     *
+     * @param handle A handle returned by {@link #put(String)}
+     * @return The stored text, or an empty string if the handle does not point into the store
+     */
+    public String get(long handle) {
+        if (handle < 0) {
+            return "";
+        }
+        long offset = handle >>> LENGTH_BITS;
+        int length = (int) (handle & LENGTH_MASK);
+        if (length == 0) {
+            return "";
+        }
+
+        try {
+            byte[] bytes = read(offset, length);
+            if (bytes == null) {
+                System.err.println("Lyrics handle points past the end of " + file.getName());
+                return "";
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Error reading lyrics: " + e.getMessage());
+            return "";
+        }
+    }
+
+    /**
+     * Forces every stored text to the storage device.
+     *
+     * @throws IOException if the store could not be synced
+     */
+    public synchronized void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            chunks = new MappedByteBuffer[0];
+        }
+    }
+
+    // Returns the bytes, or null if they run past the end of the file
+    private byte[] read(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int start = (int) (offset & (CHUNK_SIZE - 1));
+        if (start + length <= CHUNK_SIZE) {
+            MappedByteBuffer chunk = chunk((int) (offset >>> CHUNK_BITS));
+            if (chunk != null) {
+                chunk.get(start, bytes);
+                return bytes;
+            }
+        }
+
+        FileChannel ch;
+        synchronized (this) {
+            ch = channel();
+            if (offset + length > size) {
+                return null;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (ch.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Lyrics store is shorter than expected");
+            }
+        }
+        return bytes;
+    }
+
+    // Returns the chunk, mapping it on first use, or null if the file does not fill it yet
+    private MappedByteBuffer chunk(int index) throws IOException {
+        MappedByteBuffer[] current = chunks;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        synchronized (this) {
+            FileChannel ch = channel();
+            if ((long) (index + 1) << CHUNK_BITS > size) {
+                return null;
+            }
+            MappedByteBuffer[] grown = Arrays.copyOf(chunks, Math.max(chunks.length, index + 1));
+            if (grown[index] == null) {
+                grown[index] = ch.map(FileChannel.MapMode.READ_ONLY, (long) index << CHUNK_BITS, CHUNK_SIZE);
+                chunks = grown;
+            }
+            return grown[index];
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            size = channel.size();
+        }
+        return channel;
+    }
+}
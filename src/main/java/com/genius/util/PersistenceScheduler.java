@@ -0,0 +1,148 @@
+package com.genius.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces persistence work so that callers never wait on disk.
+ * Writers only mark the store dirty; a background thread runs the flush action
+ * once per interval, or sooner when enough dirty marks have piled up. Callers that
+ * need a durability guarantee can block in {@link #awaitDurable()}, which reports
+ * a failed flush instead of waiting for one that succeeds.
+ */
+public class PersistenceScheduler {
+    private final Runnable flushAction;
+    private final int dirtyThreshold;
+    private final ScheduledExecutorService executor;
+    private final Object flushLock = new Object();
+
+    private long dirtySequence;
+    private long durableSequence;
+    private boolean flushQueued;
+    private boolean closed;
+    // Flushes that failed so far, and the error of the latest one
+    private long failures;
+    private RuntimeException lastFailure;
+
+    /**
+     * @param flushAction    Makes every change marked so far durable
+     * @param intervalMillis Maximum time a change may stay dirty
+     * @param dirtyThreshold Number of dirty marks that triggers an early flush
+     */
+    public PersistenceScheduler(Runnable flushAction, long intervalMillis, int dirtyThreshold) {
+        if (intervalMillis <= 0 || dirtyThreshold <= 0) {
+            throw new IllegalArgumentException("Flush interval and threshold must be positive");
+        }
+        this.flushAction = flushAction;
+        this.dirtyThreshold = dirtyThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "persistence-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records that a change is waiting to be flushed.
+     */
+    public synchronized void markDirty() {
+        dirtySequence++;
+        if (dirtySequence - durableSequence >= dirtyThreshold) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Blocks until every change marked before this call has been flushed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IOException          if a flush failed while waiting, or the scheduler closed before the changes were flushed
+     */
+    public void awaitDurable() throws InterruptedException, IOException {
+        synchronized (this) {
+            long target = dirtySequence;
+            if (durableSequence >= target) {
+                return;
+            }
+            long failuresBefore = failures;
+            requestFlush();
+            while (durableSequence < target) {
+                if (failures != failuresBefore) {
+                    Throwable cause = lastFailure instanceof UncheckedIOException unchecked ? unchecked.getCause() : lastFailure;
+                    throw new IOException("Changes could not be saved: " + cause.getMessage(), cause);
+                }
+                if (closed) {
+                    throw new IOException("Closed before the changes were saved");
+                }
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Runs the flush action on the calling thread if anything is dirty.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            long target;
+            synchronized (this) {
+                flushQueued = false;
+                target = dirtySequence;
+                if (target == durableSequence) {
+                    return;
+                }
+            }
+
+            try {
+                flushAction.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error flushing data: " + e.getMessage());
+                synchronized (this) {
+                    failures++;
+                    lastFailure = e;
+                    notifyAll(); // Waiters report the failure rather than wait for a flush that may never succeed
+                }
+                return;
+            }
+
+            synchronized (this) {
+                durableSequence = Math.max(durableSequence, target);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread and performs a final flush.
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    private void requestFlush() {
+        if (flushQueued || executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.execute(this::flush);
+            flushQueued = true;
+        } catch (RejectedExecutionException e) {
+            // Shutting down; close() performs the final flush
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.genius.util;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches remote responses by key, bounded by their total size.
+ * Responses are held decoded; a weigher estimates the memory each one takes.
+ *
+ * <p>A response is served from the cache while it is younger than the TTL. For a
+ * while after that it is still served, but a background refresh is started so the
+ * next caller gets a fresh copy without waiting (stale-while-revalidate). Older
+ * responses are fetched again before returning. When the bound is exceeded the
+ * least recently used responses are evicted. Thread-safe; a fetch never runs
+ * while the cache is locked.</p>
+ *
+ * <p>Every caller of {@link #get} gets the same instance, so cached values must be
+ * immutable. Loaders that may return mutable values, such as lists, must be paired
+ * with a {@code freezer} that makes an immutable copy before the value is stored.</p>
+ */
+public class ResponseCache<V> {
+    // Rough per-entry cost of the key, entry and map node besides the response itself
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final UnaryOperator<V> freezer;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "response-cache-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long bytes;
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long evictions;
+    private long refreshes;
+
+    /**
+     * Fetches a response from the remote service.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+        final long weight;
+        boolean refreshing;
+
+        Entry(V value, long loadedAt, long weight) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Counters since the cache was created, and its current size.
+     */
+    public static final class Stats {
+        public final long hits;
+        public final long staleHits;
+        public final long misses;
+        public final long evictions;
+        public final long refreshes;
+        public final int entries;
+        public final long bytes;
+
+        Stats(long hits, long staleHits, long misses, long evictions, long refreshes, int entries, long bytes) {
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.refreshes = refreshes;
+            this.entries = entries;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d stale=%d misses=%d evictions=%d refreshes=%d entries=%d bytes=%d",
+                    hits, staleHits, misses, evictions, refreshes, entries, bytes);
+        }
+    }
+
+    /**
+     * @param ttlMillis   How long a response is served without refreshing it
+     * @param staleMillis How much longer it is served while a refresh runs in the background
+     * @param maxBytes    Approximate bound on the memory held by cached responses
+     * @param weigher     Estimates the bytes one response takes
+     */
+    public ResponseCache(long ttlMillis, long staleMillis, long maxBytes, ToLongFunction<V> weigher) {
+        this(ttlMillis, staleMillis, maxBytes, weigher, UnaryOperator.identity());
+    }
+
+    /**
+     * @param ttlMillis   How long a response is served without refreshing it
+     * @param staleMillis How much longer it is served while a refresh runs in the background
+     * @param maxBytes    Approximate bound on the memory held by cached responses
+     * @param weigher     Estimates the bytes one response takes
+     * @param freezer     Returns an immutable copy of a loaded response before it is cached,
+     *                    e.g. {@code List::copyOf}
+     */
+    public ResponseCache(long ttlMillis, long staleMillis, long maxBytes, ToLongFunction<V> weigher,
+                         UnaryOperator<V> freezer) {
+        if (ttlMillis <= 0 || staleMillis < 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("TTL and size bound must be positive");
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMillis);
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.freezer = freezer;
+    }
+
+    /**
+     * Returns the cached response for the key, loading it if it is missing or too old.
+     *
+     * @param key    Identifies the request, e.g. its normalized URL
+     * @param loader Fetches the response when the cache cannot serve it
+     * @return The response, shared with every other caller for the same key
+     * @throws IOException if the response had to be fetched and the fetch failed
+     */
+    public V get(String key, Loader<V> loader) throws IOException {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                long age = now - entry.loadedAt;
+                if (age < ttlNanos) {
+                    hits++;
+                    return entry.value;
+                }
+                if (age < ttlNanos + staleNanos) {
+                    staleHits++;
+                    if (!entry.refreshing) {
+                        entry.refreshing = true;
+                        refreshLater(key, entry, loader);
+                    }
+                    return entry.value;
+                }
+            }
+            misses++;
+        }
+
+        V value = freeze(loader.load());
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * Drops every cached response.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, staleHits, misses, evictions, refreshes, entries.size(), bytes);
+    }
+
+    private void refreshLater(String key, Entry<V> stale, Loader<V> loader) {
+        try {
+            refresher.execute(() -> {
+                try {
+                    put(key, freeze(loader.load()));
+                    synchronized (this) {
+                        refreshes++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not refresh cached response: " + e.getMessage());
+                    synchronized (this) {
+                        stale.refreshing = false; // Let a later caller try again
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            stale.refreshing = false;
+        }
+    }
+
+    private V freeze(V value) {
+        return value == null ? null : freezer.apply(value);
+    }
+
+    private synchronized void put(String key, V value) {
+        if (value == null) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, System.nanoTime(), ENTRY_OVERHEAD_BYTES + weigher.applyAsLong(value));
+        Entry<V> previous = entries.remove(key);
+        if (previous != null) {
+            bytes -= previous.weight;
+        }
+        if (entry.weight > maxBytes) {
+            return; // Would push out everything else
+        }
+        entries.put(key, entry);
+        bytes += entry.weight;
+
+        Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+}
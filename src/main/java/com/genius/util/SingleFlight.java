@@ -0,0 +1,133 @@
+package com.genius.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses concurrent identical calls into one.
+ *
+ * <p>The first caller for a key runs the call; callers arriving with the same
+ * key while it runs wait for it and get its result, or its exception, instead
+ * of running their own. Once it finishes the key is free again, so later
+ * callers run a fresh call. Nothing is cached. Thread-safe.</p>
+ */
+public class SingleFlight {
+    // Per-key counts are kept for this many keys; past that only the totals grow
+    private static final int MAX_TRACKED_KEYS = 1024;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> collapsedByKey = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+
+    /**
+     * A call whose result can be shared, e.g. an HTTP GET.
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V run() throws IOException;
+    }
+
+    /**
+     * Counters since creation, and the calls running now.
+     */
+    public static final class Stats {
+        public final long calls;
+        public final long collapsed;
+        public final int inFlight;
+
+        Stats(long calls, long collapsed, int inFlight) {
+            this.calls = calls;
+            this.collapsed = collapsed;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d collapsed=%d inFlight=%d", calls, collapsed, inFlight);
+        }
+    }
+
+    /**
+     * Runs the call, or joins the one already running for the key.
+     *
+     * @param key  Identifies the call; calls with equal keys must return interchangeable results
+     * @param call Runs on the caller's thread if no call for the key is running
+     * @return The call's result, shared with every caller that joined it
+     * @throws IOException if the call failed, or the caller was interrupted while waiting
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String key, Call<V> call) throws IOException {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            collapsed.incrementAndGet();
+            countCollapsed(key);
+            return (V) join(running);
+        }
+
+        calls.incrementAndGet();
+        try {
+            V result = call.run();
+            flight.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(calls.get(), collapsed.get(), inFlight.size());
+    }
+
+    /**
+     * @return How many calls joined another for each key that had any, as far as tracked
+     */
+    public Map<String, Long> getCollapsedByKey() {
+        Map<String, Long> counts = new HashMap<>();
+        collapsedByKey.forEach((key, count) -> counts.put(key, count.sum()));
+        return counts;
+    }
+
+    private void countCollapsed(String key) {
+        LongAdder count = collapsedByKey.get(key);
+        if (count == null) {
+            if (collapsedByKey.size() >= MAX_TRACKED_KEYS) {
+                return;
+            }
+            count = collapsedByKey.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    private static Object join(CompletableFuture<Object> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a shared call");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.genius.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often something happens: permits refill at a steady rate up to a burst size.
+ *
+ * <p>A caller that finds the bucket empty reserves the next permit and sleeps
+ * until it is due, so waiting callers are served in arrival order and the
+ * rate holds no matter how many threads share the bucket. Thread-safe.</p>
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double nanosPerPermit;
+    private double permits;
+    private long refilledAt;
+
+    /**
+     * @param permitsPerSecond Sustained rate
+     * @param burst            Permits that may be taken at once after an idle spell
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.capacity = burst;
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.permits = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a permit, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted while waiting; the permit is still used up
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            permits -= 1; // Below zero is a reservation on permits not yet refilled
+            waitNanos = permits >= 0 ? 0 : (long) (-permits * nanosPerPermit);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a permit only if one is available now.
+     *
+     * @return Whether a permit was taken
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (permits < 1) {
+            return false;
+        }
+        permits -= 1;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        permits = Math.min(capacity, permits + (now - refilledAt) / nanosPerPermit);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,171 @@
+package com.genius.util;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of Database mutations.
+ * Every record is framed as [length][crc32][payload] so a torn tail left behind
+ * by a crash is detected and dropped on replay instead of failing the whole load.
+ */
+public class WriteAheadLog implements Closeable {
+    private final File file;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private int recordCount;
+
+    public WriteAheadLog(String path) {
+        this.file = new File(path);
+    }
+
+    /**
+     * Reads every intact record currently in the log, in append order.
+     * Reading stops at the first truncated or corrupt record.
+     *
+     * @return The payloads of all valid records
+     */
+    public synchronized List<byte[]> readAll() {
+        List<byte[]> records = new ArrayList<>();
+        if (!file.exists()) {
+            return records;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long expectedCrc = in.readLong();
+                if (length < 0) {
+                    System.err.println("Corrupt log record, ignoring tail of " + file.getName());
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (crc(payload) != expectedCrc) {
+                    System.err.println("Log checksum mismatch, ignoring tail of " + file.getName());
+                    break;
+                }
+                records.add(payload);
+            }
+        } catch (EOFException e) {
+            System.err.println("Truncated log record, ignoring tail of " + file.getName());
+        } catch (IOException e) {
+            System.err.println("Error reading log: " + e.getMessage());
+        }
+        recordCount = records.size();
+        return records;
+    }
+
+    /**
+     * Appends a single record to the end of the log. The record is buffered;
+     * call {@link #sync()} to make it durable.
+     *
+     * @param payload The encoded mutation
+     * @throws IOException if the record could not be written
+     */
+    public synchronized void append(byte[] payload) throws IOException {
+        DataOutputStream stream = stream();
+        stream.writeInt(payload.length);
+        stream.writeLong(crc(payload));
+        stream.write(payload);
+        recordCount++;
+    }
+
+    /**
+     * Flushes buffered records and forces them to the storage device.
+     *
+     * @throws IOException if the records could not be written
+     */
+    public synchronized void sync() throws IOException {
+        if (out != null) {
+            out.flush();
+            fileOut.getFD().sync();
+        }
+    }
+
+    /**
+     * Discards every record in the log. Called once a checkpoint has folded
+     * the records into the snapshot.
+     *
+     * @throws IOException if the log file could not be truncated
+     */
+    public synchronized void reset() throws IOException {
+        close();
+        new FileOutputStream(file).close();
+        recordCount = 0;
+    }
+
+    /**
+     * Moves every record written so far to another file and starts an empty log.
+     *
+     * @param target Where the current records go; replaced if it exists
+     * @throws IOException if the log could not be moved
+     */
+    public synchronized void rotateTo(File target) throws IOException {
+        close();
+        if (file.exists()) {
+            Files.move(file.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * Appends every record written so far to the end of another log file and
+     * starts an empty log. The target is synced before this log is emptied, so a
+     * crash in between leaves the records in both files rather than in neither.
+     *
+     * @param target Log file the current records are added to; created if missing
+     * @throws IOException if the records could not be moved
+     */
+    public synchronized void appendTo(File target) throws IOException {
+        close();
+        if (file.exists()) {
+            try (FileOutputStream targetOut = new FileOutputStream(target, true)) {
+                Files.copy(file.toPath(), targetOut);
+                targetOut.getFD().sync();
+            }
+            new FileOutputStream(file).close();
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * @return Number of records appended since the last reset or rotation
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    private DataOutputStream stream() throws IOException {
+        if (out == null) {
+            fileOut = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        }
+        return out;
+    }
+
+    private static long crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,90 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Admin;
+import com.genius.model.accounts.Artist;
+import com.genius.model.accounts.User;
+import com.genius.model.enums.Role;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Codec for User, Artist and Admin accounts, tagged by role.
+ * Admin level and department are not stored; they are constant for every admin.
+ */
+class AccountCodec implements EntityCodec<Account> {
+
+    @Override
+    public void write(BinaryWriter out, Account account) throws IOException {
+        out.writeByte(account.getRole().ordinal());
+        out.writeString(account.getUsername());
+        out.writeText(account.getPassword());
+        out.writeString(account.getName());
+        out.writeVarInt(Math.max(account.getAge(), 0));
+        out.writeString(account.getEmail());
+
+        if (account instanceof Artist artist) {
+            out.writeString(artist.getGeniusId());
+            out.writeString(artist.getImageUrl());
+            out.writeBoolean(artist.isVerified());
+        } else if (account instanceof User user) {
+            List<String> notifications = user.getNotifications();
+            out.writeVarInt(notifications.size());
+            for (String notification : notifications) {
+                out.writeText(notification);
+            }
+            List<Artist> following = user.getFollowing();
+            out.writeVarInt(following.size());
+            for (Artist artist : following) {
+                out.writeString(artist.getUsername());
+            }
+        }
+    }
+
+    @Override
+    public Account read(BinaryReader in, CodecContext context) throws IOException {
+        int roleOrdinal = in.readByte();
+        if (roleOrdinal >= Role.values().length) {
+            throw new IOException("Unknown account role: " + roleOrdinal);
+        }
+        Role role = Role.values()[roleOrdinal];
+        String username = in.readString();
+        String password = in.readText();
+        String name = in.readString();
+        int age = in.readVarInt();
+        String email = in.readString();
+
+        switch (role) {
+            case ARTIST -> {
+                Artist artist = new Artist(username, password, name, age, email);
+                artist.setGeniusId(in.readString());
+                artist.setImageUrl(in.readString());
+                artist.setVerified(in.readBoolean());
+                return artist;
+            }
+            case USER -> {
+                User user = new User(username, password, name, age, email);
+                int notificationCount = in.readVarInt();
+                for (int i = 0; i < notificationCount; i++) {
+                    user.addNotification(in.readText());
+                }
+                int followingCount = in.readVarInt();
+                for (int i = 0; i < followingCount; i++) {
+                    String artistName = in.readString();
+                    // Followed artists may not have been read yet
+                    context.defer(() -> {
+                        Account followed = context.account(artistName);
+                        if (followed instanceof Artist artist) {
+                            user.followArtist(artist);
+                        }
+                    });
+                }
+                return user;
+            }
+            default -> {
+                return new Admin(username, password, name, age, email);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Album;
+import com.genius.model.content.Song;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Codec for albums. Tracks are stored as song catalog ids, so every song must
+ * be decoded before the albums that contain it.
+ */
+class AlbumCodec implements EntityCodec<Album> {
+
+    @Override
+    public void write(BinaryWriter out, Album album) throws IOException {
+        out.writeString(album.getTitle());
+        out.writeString(album.getArtist() != null ? album.getArtist().getUsername() : null);
+        out.writeDate(album.getReleaseDate());
+        List<Song> tracklist = album.getTracklist();
+        out.writeVarInt(tracklist.size());
+        for (Song song : tracklist) {
+            out.writeSignedVarLong(song.getId());
+        }
+    }
+
+    @Override
+    public Album read(BinaryReader in, CodecContext context) throws IOException {
+        String title = in.readString();
+        Account account = context.account(in.readString());
+        Artist artist = account instanceof Artist ? (Artist) account : null;
+        Date releaseDate = in.readDate();
+
+        Album album = new Album(title, artist, releaseDate);
+        int trackCount = in.readVarInt();
+        for (int i = 0; i < trackCount; i++) {
+            Song song = context.song((int) in.readSignedVarLong());
+            if (song != null) {
+                album.addSong(song);
+            }
+        }
+        if (artist != null) {
+            artist.addAlbum(album);
+        }
+        return album;
+    }
+}
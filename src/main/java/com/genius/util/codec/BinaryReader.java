@@ -0,0 +1,97 @@
+package com.genius.util.codec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Counterpart of {@link BinaryWriter}.
+ */
+public class BinaryReader {
+    private final InputStream in;
+    private final List<String> strings = new ArrayList<>();
+
+    public BinaryReader(InputStream in) {
+        this.in = in;
+    }
+
+    public int readByte() throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException();
+        }
+        return value;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varlong");
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public Integer readNullableInt() throws IOException {
+        return readBoolean() ? (int) readSignedVarLong() : null;
+    }
+
+    public Date readDate() throws IOException {
+        return readBoolean() ? new Date(readSignedVarLong()) : null;
+    }
+
+    public String readString() throws IOException {
+        int ref = readVarInt();
+        if (ref == 0) {
+            return null;
+        }
+        int index = ref - 1;
+        if (index < strings.size()) {
+            return strings.get(index);
+        }
+        if (index != strings.size()) {
+            throw new IOException("String table reference out of order: " + index);
+        }
+        String value = readText();
+        strings.add(value);
+        return value;
+    }
+
+    public String readText() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = in.readNBytes(length - 1);
+        if (bytes.length != length - 1) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package com.genius.util.codec;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Low-level writer for the catalog binary format.
+ * Integers are written as LEB128 varints, and short repeated strings (usernames,
+ * names, e-mails, URLs) go through a string table so each distinct value is
+ * written once per stream and referenced by index afterwards.
+ */
+public class BinaryWriter implements Flushable {
+    private final OutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public BinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void writeByte(int value) throws IOException {
+        out.write(value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.write(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a non-negative int in 1-5 bytes.
+     */
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes a non-negative long in 1-10 bytes.
+     */
+    public void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a signed long using zig-zag encoding so small negatives stay small.
+     */
+    public void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeNullableInt(Integer value) throws IOException {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeSignedVarLong(value);
+        }
+    }
+
+    public void writeDate(Date date) throws IOException {
+        writeBoolean(date != null);
+        if (date != null) {
+            writeSignedVarLong(date.getTime());
+        }
+    }
+
+    /**
+     * Writes a string through the string table. A value seen before costs a
+     * single varint; the first occurrence is followed by its UTF-8 bytes.
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(index + 1);
+            return;
+        }
+        int newIndex = strings.size();
+        strings.put(value, newIndex);
+        writeVarInt(newIndex + 1);
+        writeText(value);
+    }
+
+    /**
+     * Writes a string inline without interning it. Used for large, unique
+     * values such as lyrics and comment bodies.
+     */
+    public void writeText(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        out.write(bytes);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
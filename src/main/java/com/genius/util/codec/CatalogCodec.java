@@ -0,0 +1,148 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Album;
+import com.genius.model.content.Comment;
+import com.genius.model.content.LyricEdit;
+import com.genius.model.content.Song;
+import com.genius.util.LyricsStore;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Versioned binary format for catalog snapshots.
+ *
+ * <p>Layout: magic, format version, last log sequence, then one section per
+ * entity type in dependency order (accounts, pending artists, songs, albums,
+ * lyric edits, notifications). Each section is a varint count followed by that
+ * many entities written with the matching {@link EntityCodec}. Comments have no
+ * section of their own; each is written once, inside its song.</p>
+ */
+public class CatalogCodec {
+    private static final int MAGIC = 0x474E5344; // "GNSD"
+    private static final int FORMAT_VERSION = 4;
+
+    public static final EntityCodec<Account> ACCOUNT = new AccountCodec();
+    public static final EntityCodec<Comment> COMMENT = new CommentCodec();
+    public static final EntityCodec<Song> SONG = new SongCodec(COMMENT);
+    public static final EntityCodec<Album> ALBUM = new AlbumCodec();
+    public static final EntityCodec<LyricEdit> LYRIC_EDIT = new LyricEditCodec();
+
+    private CatalogCodec() {
+    }
+
+    public static void write(OutputStream stream, CatalogSnapshot snapshot) throws IOException {
+        DataOutputStream header = new DataOutputStream(stream);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+
+        BinaryWriter out = new BinaryWriter(stream);
+        out.writeVarLong(snapshot.lastSequence);
+        writeAll(out, ACCOUNT, snapshot.accounts);
+        writeAll(out, ACCOUNT, snapshot.artistsForApproval);
+        writeAll(out, SONG, snapshot.songs);
+        writeAll(out, ALBUM, snapshot.albums);
+        writeAll(out, LYRIC_EDIT, snapshot.lyricEdits);
+        writeNotifications(out, snapshot.userNotifications);
+        writeNotifications(out, snapshot.artistNotifications);
+        out.flush();
+    }
+
+    public static CatalogSnapshot read(InputStream stream) throws IOException {
+        return read(stream, null);
+    }
+
+    /**
+     * @param lyrics The store that song lyrics handles refer to, if any
+     */
+    public static CatalogSnapshot read(InputStream stream, LyricsStore lyrics) throws IOException {
+        DataInputStream header = new DataInputStream(stream);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        int version = header.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot();
+        Map<String, Account> byUsername = new HashMap<>();
+        CodecContext context = new CodecContext(byUsername::get,
+                id -> id >= 0 && id < snapshot.songs.size() ? snapshot.songs.get(id) : null, lyrics);
+
+        BinaryReader in = new BinaryReader(stream);
+        snapshot.lastSequence = in.readVarLong();
+        for (Account account : readAll(in, ACCOUNT, context)) {
+            snapshot.accounts.add(account);
+            byUsername.put(account.getUsername(), account);
+        }
+        for (Account account : readAll(in, ACCOUNT, context)) {
+            if (account instanceof Artist artist) {
+                snapshot.artistsForApproval.add(artist);
+                byUsername.putIfAbsent(artist.getUsername(), artist);
+            }
+        }
+        context.resolveDeferred();
+
+        for (Song song : readAll(in, SONG, context)) {
+            song.setId(snapshot.songs.size());
+            snapshot.songs.add(song);
+        }
+        snapshot.albums.addAll(readAll(in, ALBUM, context));
+        snapshot.lyricEdits.addAll(readAll(in, LYRIC_EDIT, context));
+        snapshot.userNotifications.putAll(readNotifications(in));
+        snapshot.artistNotifications.putAll(readNotifications(in));
+        return snapshot;
+    }
+
+    private static <T> void writeAll(BinaryWriter out, EntityCodec<T> codec, Collection<? extends T> values)
+            throws IOException {
+        out.writeVarInt(values.size());
+        for (T value : values) {
+            codec.write(out, value);
+        }
+    }
+
+    // Entities whose references can no longer be resolved decode to null and are dropped
+    private static <T> List<T> readAll(BinaryReader in, EntityCodec<T> codec, CodecContext context)
+            throws IOException {
+        int count = in.readVarInt();
+        List<T> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            T value = codec.read(in, context);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static void writeNotifications(BinaryWriter out, Map<String, List<String>> notifications)
+            throws IOException {
+        out.writeVarInt(notifications.size());
+        for (Map.Entry<String, List<String>> entry : notifications.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeVarInt(entry.getValue().size());
+            for (String message : entry.getValue()) {
+                out.writeText(message);
+            }
+        }
+    }
+
+    private static Map<String, List<String>> readNotifications(BinaryReader in) throws IOException {
+        int count = in.readVarInt();
+        Map<String, List<String>> notifications = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String username = in.readString();
+            int messageCount = in.readVarInt();
+            List<String> messages = new ArrayList<>(messageCount);
+            for (int j = 0; j < messageCount; j++) {
+                messages.add(in.readText());
+            }
+            notifications.put(username, messages);
+        }
+        return notifications;
+    }
+}
@@ -0,0 +1,29 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Album;
+import com.genius.model.content.LyricEdit;
+import com.genius.model.content.Song;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain holder for everything a catalog snapshot contains.
+ * Songs are listed in catalog id order and carry their comments. Notifications
+ * are keyed by username.
+ */
+public class CatalogSnapshot {
+    public final List<Account> accounts = new ArrayList<>();
+    public final List<Artist> artistsForApproval = new ArrayList<>();
+    public final List<Song> songs = new ArrayList<>();
+    public final List<Album> albums = new ArrayList<>();
+    public final List<LyricEdit> lyricEdits = new ArrayList<>();
+    public final Map<String, List<String>> userNotifications = new HashMap<>();
+    public final Map<String, List<String>> artistNotifications = new HashMap<>();
+    // Sequence number of the last logged mutation contained in the snapshot
+    public long lastSequence;
+}
@@ -0,0 +1,63 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.content.Song;
+import com.genius.util.LyricsStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Resolves references between entities while decoding.
+ * Accounts are referenced by username and songs by catalog id. Links that can
+ * only be resolved once every account has been read (such as followed artists)
+ * are queued with {@link #defer(Runnable)}. Song lyrics stored by handle are
+ * read from the context's lyrics store.
+ */
+public class CodecContext {
+    private final Function<String, Account> accounts;
+    private final IntFunction<Song> songs;
+    private final LyricsStore lyrics;
+    private final List<Runnable> deferred = new ArrayList<>();
+
+    public CodecContext(Function<String, Account> accounts, IntFunction<Song> songs) {
+        this(accounts, songs, null);
+    }
+
+    public CodecContext(Function<String, Account> accounts, IntFunction<Song> songs, LyricsStore lyrics) {
+        this.accounts = accounts;
+        this.songs = songs;
+        this.lyrics = lyrics;
+    }
+
+    public Account account(String username) {
+        return username != null ? accounts.apply(username) : null;
+    }
+
+    public Song song(int id) {
+        return songs.apply(id);
+    }
+
+    /**
+     * @return The store that lyrics handles refer to, or null if there is none
+     */
+    public LyricsStore lyrics() {
+        return lyrics;
+    }
+
+    public void defer(Runnable link) {
+        deferred.add(link);
+    }
+
+    /**
+     * Runs and clears all deferred links.
+     */
+    public void resolveDeferred() {
+        for (Runnable link : deferred) {
+            link.run();
+        }
+        deferred.clear();
+    }
+}
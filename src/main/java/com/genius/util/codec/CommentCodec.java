@@ -0,0 +1,37 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.User;
+import com.genius.model.content.Comment;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Codec for comments. Decoding yields null if the author no longer exists.
+ */
+class CommentCodec implements EntityCodec<Comment> {
+
+    @Override
+    public void write(BinaryWriter out, Comment comment) throws IOException {
+        out.writeString(comment.getUser().getUsername());
+        out.writeText(comment.getText());
+        out.writeDate(comment.getDate());
+        out.writeVarInt(comment.getLikes());
+        out.writeVarInt(comment.getDislikes());
+    }
+
+    @Override
+    public Comment read(BinaryReader in, CodecContext context) throws IOException {
+        Account author = context.account(in.readString());
+        String text = in.readText();
+        Date date = in.readDate();
+        int likes = in.readVarInt();
+        int dislikes = in.readVarInt();
+
+        if (!(author instanceof User user) || text == null || text.isBlank() || date == null) {
+            return null;
+        }
+        return new Comment(user, text, date, likes, dislikes);
+    }
+}
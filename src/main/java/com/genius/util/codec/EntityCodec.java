@@ -0,0 +1,15 @@
+package com.genius.util.codec;
+
+import java.io.IOException;
+
+/**
+ * Encodes and decodes one entity type of the catalog.
+ *
+ * @param <T> The entity type
+ */
+public interface EntityCodec<T> {
+
+    void write(BinaryWriter out, T value) throws IOException;
+
+    T read(BinaryReader in, CodecContext context) throws IOException;
+}
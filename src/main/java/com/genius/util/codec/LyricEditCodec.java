@@ -0,0 +1,51 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.model.accounts.User;
+import com.genius.model.content.LyricEdit;
+import com.genius.model.content.Song;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Codec for lyric edit suggestions. Decoding yields null if the suggesting
+ * user or the song no longer exists.
+ */
+class LyricEditCodec implements EntityCodec<LyricEdit> {
+
+    @Override
+    public void write(BinaryWriter out, LyricEdit edit) throws IOException {
+        out.writeString(edit.getSuggestedBy() != null ? edit.getSuggestedBy().getUsername() : null);
+        out.writeSignedVarLong(edit.getSong() != null ? edit.getSong().getId() : -1);
+        out.writeText(edit.getOriginalLyrics());
+        out.writeText(edit.getProposedLyrics());
+        out.writeText(edit.getExplanation());
+        out.writeDate(edit.getSuggestedDate());
+        out.writeBoolean(edit.isApproved());
+        out.writeBoolean(edit.isRejected());
+        out.writeString(edit.getReviewedBy() != null ? edit.getReviewedBy().getUsername() : null);
+        out.writeText(edit.getRejectionReason());
+    }
+
+    @Override
+    public LyricEdit read(BinaryReader in, CodecContext context) throws IOException {
+        Account suggestedBy = context.account(in.readString());
+        Song song = context.song((int) in.readSignedVarLong());
+        String originalLyrics = in.readText();
+        String proposedLyrics = in.readText();
+        String explanation = in.readText();
+        Date suggestedDate = in.readDate();
+        boolean approved = in.readBoolean();
+        boolean rejected = in.readBoolean();
+        Account reviewedBy = context.account(in.readString());
+        String rejectionReason = in.readText();
+
+        if (!(suggestedBy instanceof User user) || song == null) {
+            return null;
+        }
+        return new LyricEdit(user, song, originalLyrics, proposedLyrics, explanation, suggestedDate,
+                approved, rejected, reviewedBy instanceof Artist artist ? artist : null, rejectionReason);
+    }
+}
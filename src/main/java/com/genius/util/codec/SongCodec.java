@@ -0,0 +1,107 @@
+package com.genius.util.codec;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Comment;
+import com.genius.model.content.Song;
+import com.genius.model.enums.Genre;
+import com.genius.util.LyricsStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Codec for songs, including their comments.
+ * The album link is not stored here; it is restored from the album tracklists.
+ * Decoding also re-attaches the song to each of its artists. Lyrics that live in
+ * a {@link LyricsStore} are written as a handle rather than as text.
+ */
+class SongCodec implements EntityCodec<Song> {
+    private final EntityCodec<Comment> comments;
+
+    SongCodec(EntityCodec<Comment> comments) {
+        this.comments = comments;
+    }
+
+    @Override
+    public void write(BinaryWriter out, Song song) throws IOException {
+        out.writeNullableInt(song.getGeniusId());
+        out.writeString(song.getTitle());
+        long lyricsHandle = song.getLyricsHandle();
+        out.writeVarLong(lyricsHandle + 1); // 0 means the text follows inline
+        if (lyricsHandle == LyricsStore.NO_HANDLE) {
+            out.writeText(song.getLyrics());
+        }
+        List<Artist> artists = song.getArtists();
+        out.writeVarInt(artists.size());
+        for (Artist artist : artists) {
+            out.writeString(artist.getUsername());
+        }
+        out.writeString(song.getGenre() != null ? song.getGenre().name() : null);
+        out.writeVarInt(song.getViews());
+        out.writeDate(song.getReleaseDate());
+        out.writeString(song.getThumbnailUrl());
+        out.writeString(song.getApiPath());
+        List<Comment> songComments = song.getComments();
+        out.writeVarInt(songComments.size());
+        for (Comment comment : songComments) {
+            comments.write(out, comment);
+        }
+    }
+
+    @Override
+    public Song read(BinaryReader in, CodecContext context) throws IOException {
+        Integer geniusId = in.readNullableInt();
+        String title = in.readString();
+        long lyricsHandle = in.readVarLong() - 1;
+        String lyrics = lyricsHandle == LyricsStore.NO_HANDLE ? in.readText() : null;
+        int artistCount = in.readVarInt();
+        List<Artist> artists = new ArrayList<>(artistCount);
+        for (int i = 0; i < artistCount; i++) {
+            Account account = context.account(in.readString());
+            if (account instanceof Artist artist) {
+                artists.add(artist);
+            }
+        }
+        Genre genre = parseGenre(in.readString());
+        int views = in.readVarInt();
+        Date releaseDate = in.readDate();
+        String thumbnailUrl = in.readString();
+        String apiPath = in.readString();
+
+        Song song = new Song(title, lyrics, artists, genre,
+                releaseDate != null ? releaseDate : new Date(), geniusId, thumbnailUrl);
+        song.setViews(views);
+        song.setApiPath(apiPath);
+        if (lyricsHandle != LyricsStore.NO_HANDLE) {
+            if (context.lyrics() != null) {
+                song.restoreLyrics(context.lyrics(), lyricsHandle);
+            } else {
+                System.err.println("No lyrics store to read lyrics of: " + title);
+            }
+        }
+
+        int commentCount = in.readVarInt();
+        for (int i = 0; i < commentCount; i++) {
+            song.addComment(comments.read(in, context));
+        }
+        for (Artist artist : artists) {
+            artist.addSong(song);
+        }
+        return song;
+    }
+
+    private static Genre parseGenre(String name) {
+        if (name == null) {
+            return Genre.OTHER;
+        }
+        try {
+            return Genre.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            Genre genre = Genre.fromString(name);
+            return genre != null ? genre : Genre.OTHER;
+        }
+    }
+}
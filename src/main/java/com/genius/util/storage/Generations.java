@@ -0,0 +1,49 @@
+package com.genius.util.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Naming and rotation of numbered file generations: the current file keeps its
+ * own name, and older copies are suffixed .1 (newest) up to .N (oldest).
+ */
+final class Generations {
+
+    private Generations() {
+    }
+
+    static File of(File base, int generation) {
+        return generation == 0 ? base : new File(base.getPath() + "." + generation);
+    }
+
+    /**
+     * Moves generations 1..keep-1 one step older and drops generation keep,
+     * leaving the current file and a free slot at generation 1.
+     */
+    static void shiftOlder(File base, int keep) throws IOException {
+        Files.deleteIfExists(of(base, keep).toPath());
+        for (int generation = keep - 1; generation >= 1; generation--) {
+            File from = of(base, generation);
+            if (from.exists()) {
+                Files.move(from.toPath(), of(base, generation + 1).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    /**
+     * Forces the directory entry changes (renames, creates) of the file's directory to disk.
+     */
+    static void syncDirectory(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the rename is still atomic
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.genius.util.storage;
+
+import com.genius.util.codec.CatalogSnapshot;
+
+import java.util.List;
+
+/**
+ * Keeps nothing: the catalog lives only as long as the process.
+ * Useful for tests and for measuring the services without any disk work.
+ */
+public class InMemoryStorage implements StorageBackend {
+
+    @Override
+    public CatalogSnapshot load() {
+        return null;
+    }
+
+    @Override
+    public List<byte[]> readRecords() {
+        return List.of();
+    }
+
+    @Override
+    public void append(byte[] record) {
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public boolean isCheckpointDue() {
+        return false;
+    }
+
+    @Override
+    public void checkpoint(byte[] snapshot) {
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+}
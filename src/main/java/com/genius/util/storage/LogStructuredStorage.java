@@ -0,0 +1,121 @@
+package com.genius.util.storage;
+
+import com.genius.util.LyricsStore;
+import com.genius.util.WriteAheadLog;
+import com.genius.util.codec.CatalogSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends every mutation to a write-ahead log and folds the log into a snapshot
+ * file once it has grown past a fixed number of records. Flushes only cost the
+ * records written since the previous one. Lyrics go to a separate
+ * {@link LyricsStore} that is synced ahead of the log.
+ *
+ * <p>Each checkpoint rotates the log into a numbered generation next to the
+ * snapshot generation it leads up to, so falling back to an older snapshot
+ * still finds every record written after it. Generations only shift once the
+ * previous snapshot has been written; while it has not, a rotation adds the new
+ * records to the newest generation instead, so failing snapshots never push out
+ * records that no snapshot holds yet.</p>
+ */
+public class LogStructuredStorage implements StorageBackend {
+    // Number of log records after which the log is folded into a new snapshot
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+
+    private final SnapshotFileStorage snapshots;
+    private final File logFile;
+    private final WriteAheadLog log;
+    private final int checkpointInterval;
+    // Set by a rotation and cleared once a snapshot has been written; guarded by this
+    private boolean snapshotPending;
+
+    public LogStructuredStorage(String snapshotPath, String logPath, String lyricsPath) {
+        this(snapshotPath, logPath, lyricsPath, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param checkpointInterval Number of log records that makes a checkpoint due
+     */
+    public LogStructuredStorage(String snapshotPath, String logPath, String lyricsPath, int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.snapshots = new SnapshotFileStorage(snapshotPath, lyricsPath);
+        this.logFile = new File(logPath);
+        this.log = new WriteAheadLog(logPath);
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    @Override
+    public CatalogSnapshot load() throws IOException {
+        return snapshots.load();
+    }
+
+    @Override
+    public List<byte[]> readRecords() {
+        List<byte[]> records = new ArrayList<>();
+        // Older generations first; the Database skips whatever the loaded snapshot already holds
+        for (int generation = snapshots.getGenerations() + 1; generation >= 1; generation--) {
+            File older = Generations.of(logFile, generation);
+            if (older.exists()) {
+                records.addAll(new WriteAheadLog(older.getPath()).readAll());
+            }
+        }
+        records.addAll(log.readAll());
+        return records;
+    }
+
+    @Override
+    public void append(byte[] record) throws IOException {
+        log.append(record);
+    }
+
+    @Override
+    public void sync() throws IOException {
+        snapshots.sync(); // Records may refer to lyrics by handle
+        log.sync();
+    }
+
+    @Override
+    public boolean isCheckpointDue() {
+        return log.getRecordCount() >= checkpointInterval;
+    }
+
+    @Override
+    public synchronized void rotate() throws IOException {
+        log.sync();
+        if (snapshotPending) {
+            // The newest generation's snapshot is not written yet; the next one covers these records too
+            log.appendTo(Generations.of(logFile, 1));
+        } else {
+            // One more log generation than snapshots, covering the oldest snapshot's successor
+            Generations.shiftOlder(logFile, snapshots.getGenerations() + 1);
+            log.rotateTo(Generations.of(logFile, 1));
+        }
+        snapshotPending = true;
+        Generations.syncDirectory(logFile);
+    }
+
+    @Override
+    public void checkpoint(byte[] snapshot) throws IOException {
+        snapshots.checkpoint(snapshot);
+        synchronized (this) {
+            snapshotPending = false;
+        }
+    }
+
+    @Override
+    public LyricsStore getLyricsStore() {
+        return snapshots.getLyricsStore();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+        snapshots.close();
+    }
+}
@@ -0,0 +1,181 @@
+package com.genius.util.storage;
+
+import com.genius.util.LyricsStore;
+import com.genius.util.codec.CatalogCodec;
+import com.genius.util.codec.CatalogSnapshot;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the catalog as a snapshot file and nothing else.
+ * Records are not kept; any flush that follows a mutation rewrites the whole
+ * snapshot. Simple and compact, but every flush costs time proportional to the
+ * size of the catalog. Lyrics go to a separate {@link LyricsStore} when one is given.
+ *
+ * <p>Each snapshot is written to a temporary file with a CRC32 trailer, forced to
+ * disk and renamed over the current one, so a crash mid-write never damages an
+ * existing snapshot. The previous snapshots are kept as numbered generations and
+ * loading falls back to them when the newest one fails validation.</p>
+ */
+public class SnapshotFileStorage implements StorageBackend {
+    static final int DEFAULT_GENERATIONS = 3;
+    private static final int TRAILER_BYTES = Long.BYTES;
+
+    private final File file;
+    private final LyricsStore lyrics;
+    private final int generations;
+    private int pendingRecords;
+
+    public SnapshotFileStorage(String path) {
+        this(path, (LyricsStore) null, DEFAULT_GENERATIONS);
+    }
+
+    public SnapshotFileStorage(String path, String lyricsPath) {
+        this(path, new LyricsStore(lyricsPath), DEFAULT_GENERATIONS);
+    }
+
+    /**
+     * @param generations Number of older snapshots kept besides the current one
+     */
+    public SnapshotFileStorage(String path, String lyricsPath, int generations) {
+        this(path, new LyricsStore(lyricsPath), generations);
+    }
+
+    SnapshotFileStorage(String path, LyricsStore lyrics, int generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Generations cannot be negative");
+        }
+        this.file = new File(path);
+        this.lyrics = lyrics;
+        this.generations = generations;
+    }
+
+    @Override
+    public CatalogSnapshot load() throws IOException {
+        IOException failure = null;
+        for (int generation = 0; generation <= generations; generation++) {
+            File candidate = Generations.of(file, generation);
+            if (!candidate.exists()) {
+                continue;
+            }
+            try {
+                CatalogSnapshot snapshot = CatalogCodec.read(
+                        new ByteArrayInputStream(readValidated(candidate)), lyrics);
+                if (generation > 0) {
+                    System.err.println("Recovered catalog from older snapshot " + candidate.getName());
+                }
+                return snapshot;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Skipping snapshot " + candidate.getName() + ": " + e.getMessage());
+                failure = new IOException("No valid snapshot of " + file.getName(), e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    @Override
+    public List<byte[]> readRecords() {
+        return List.of();
+    }
+
+    @Override
+    public synchronized void append(byte[] record) {
+        pendingRecords++; // The mutation itself is already in memory and goes out with the next snapshot
+    }
+
+    @Override
+    public void sync() throws IOException {
+        if (lyrics != null) {
+            lyrics.sync();
+        }
+    }
+
+    @Override
+    public synchronized boolean isCheckpointDue() {
+        return pendingRecords > 0;
+    }
+
+    @Override
+    public synchronized void rotate() {
+        pendingRecords = 0;
+    }
+
+    @Override
+    public synchronized void checkpoint(byte[] snapshot) throws IOException {
+        sync(); // The snapshot refers to lyrics by handle
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(snapshot);
+            out.write(ByteBuffer.allocate(TRAILER_BYTES).putLong(crc(snapshot, snapshot.length)).array());
+            out.getFD().sync();
+        }
+
+        if (generations > 0 && file.exists()) {
+            Generations.shiftOlder(file, generations);
+            keepCopy(file, Generations.of(file, 1));
+        }
+        Files.move(temp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Generations.syncDirectory(file);
+    }
+
+    @Override
+    public LyricsStore getLyricsStore() {
+        return lyrics;
+    }
+
+    @Override
+    public boolean retainsRecords() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (lyrics != null) {
+            lyrics.close();
+        }
+    }
+
+    int getGenerations() {
+        return generations;
+    }
+
+    // Reads a snapshot file and returns its payload if the trailer checksum matches
+    private static byte[] readValidated(File snapshot) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        int length = bytes.length - TRAILER_BYTES;
+        if (length < 0) {
+            throw new IOException("Snapshot is truncated");
+        }
+        long expected = ByteBuffer.wrap(bytes, length, TRAILER_BYTES).getLong();
+        if (crc(bytes, length) != expected) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    // Keeps the current snapshot as generation 1 without ever leaving the current name empty
+    private static void keepCopy(File current, File target) throws IOException {
+        try {
+            Files.createLink(target.toPath(), current.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(current.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static long crc(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,97 @@
+package com.genius.util.storage;
+
+import com.genius.util.LyricsStore;
+import com.genius.util.codec.CatalogSnapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Durable storage underneath the in-memory Database.
+ *
+ * <p>The Database keeps every entity in memory and hands each mutation to the
+ * backend as an encoded record. Periodically it asks the backend whether a full
+ * snapshot is due. If so it pauses mutations just long enough to call
+ * {@link #rotate()} and encode the catalog, then passes the encoded snapshot to
+ * {@link #checkpoint(byte[])} from a background thread. On startup it loads the
+ * newest valid snapshot and replays the records that follow it.</p>
+ */
+public interface StorageBackend extends Closeable {
+
+    /**
+     * @return The newest snapshot that passes validation, or null if there is none
+     * @throws IOException if snapshots exist but none of them can be read
+     */
+    CatalogSnapshot load() throws IOException;
+
+    /**
+     * @return Retained records, oldest first. May include records that the loaded
+     *         snapshot already contains; their sequence numbers tell them apart.
+     */
+    List<byte[]> readRecords();
+
+    /**
+     * Accepts one encoded mutation. It need not be durable until {@link #sync()}.
+     *
+     * @param record The encoded mutation
+     * @throws IOException if the record could not be written
+     */
+    void append(byte[] record) throws IOException;
+
+    /**
+     * Makes every record appended so far durable.
+     *
+     * @throws IOException if the records could not be written
+     */
+    void sync() throws IOException;
+
+    /**
+     * @return true if the Database should write a full snapshot now
+     */
+    boolean isCheckpointDue();
+
+    /**
+     * Starts a new run of records. Called with mutations paused, right before the
+     * snapshot that the previous run leads up to is captured.
+     *
+     * @throws IOException if the records could not be rotated
+     */
+    default void rotate() throws IOException {
+    }
+
+    /**
+     * Stores a full snapshot. Runs concurrently with {@link #append(byte[])} and
+     * {@link #sync()}; records from before the matching {@link #rotate()} may be
+     * discarded once it returns.
+     *
+     * @param snapshot The catalog encoded with {@link com.genius.util.codec.CatalogCodec}
+     * @throws IOException if the snapshot could not be written
+     */
+    void checkpoint(byte[] snapshot) throws IOException;
+
+    /**
+     * @return Where song lyrics are kept off the heap, or null to keep them in memory.
+     *         {@link #sync()} and {@link #checkpoint(byte[])} make it durable
+     *         before anything that refers to it.
+     */
+    default LyricsStore getLyricsStore() {
+        return null;
+    }
+
+    /**
+     * @return false if nothing survives a restart, in which case the Database skips
+     *         encoding records altogether
+     */
+    default boolean isDurable() {
+        return true;
+    }
+
+    /**
+     * @return false if synced records alone do not survive a restart, so that a
+     *         flush is only durable once the following checkpoint has been written
+     */
+    default boolean retainsRecords() {
+        return isDurable();
+    }
+}
@@ -3,15 +3,18 @@ package com.genius.view;
 import com.genius.model.accounts.*;
 import com.genius.model.enums.Genre;
 import com.genius.services.*;
+import com.genius.services.api.GeniusArtist;
+import com.genius.services.api.GeniusSong;
+import com.genius.services.api.SearchHit;
 import com.genius.util.Database;
 import com.genius.model.content.Album;
 import com.genius.model.content.Comment;
 import com.genius.model.content.LyricEdit;
 import com.genius.model.content.Song;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.genius.search.LyricsMatch;
+import com.genius.search.SongSearchResult;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -23,6 +26,8 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class CLI {
+    // How long opening a song waits for lyrics that are still being fetched
+    private static final long LYRICS_WAIT_MILLIS = 3000;
 
     private final Map<Integer, Artist> artistsCache = new HashMap<>();
 
@@ -196,7 +201,13 @@ public class CLI {
         
         String role = roleChoice == 2 ? "ARTIST" : "USER";
         
-        Account newAccount = authService.register(username, password, name, age, email, role);
+        Account newAccount;
+        try {
+            newAccount = authService.register(username, password, name, age, email, role);
+        } catch (IOException e) {
+            System.out.println("Registration could not be saved: " + e.getMessage());
+            return;
+        }
         
         if (newAccount != null) {
             System.out.println("Registration successful!");
@@ -215,10 +226,9 @@ public class CLI {
         System.out.println("\n--- Browse Popular Songs (From Genius API) ---");
 
         try {
-            JsonObject response = geniusAPI.search("popular");
-            JsonArray hits = response.getAsJsonObject("response").getAsJsonArray("hits");
+            List<SearchHit> hits = geniusAPI.search("popular");
 
-            if (hits == null || hits.size() == 0) {
+            if (hits.isEmpty()) {
                 System.out.println("No popular songs found.");
                 return;
             }
@@ -232,15 +242,11 @@ public class CLI {
 
             for (int i = 0; i < hits.size(); i++) {
                 try {
-                    JsonObject hit = hits.get(i).getAsJsonObject();
-                    JsonObject result = hit.getAsJsonObject("result");
+                    GeniusSong result = hits.get(i).getSong();
 
-                    String title = result.get("title").getAsString();
-                    String artist = result.getAsJsonObject("primary_artist")
-                            .get("name").getAsString();
-                    int views = result.has("stats")
-                            ? result.getAsJsonObject("stats").get("pageviews").getAsInt()
-                            : 0;
+                    String title = result.getTitle();
+                    String artist = result.getPrimaryArtist().getName();
+                    int views = result.getPageviews();
 
                     System.out.printf("│ %4d │ %-36s │ %-24s │ %10s │\n",
                             i+1,
@@ -261,10 +267,8 @@ public class CLI {
                             )),
                             determineGenre(result),
                             new Date(),
-                            result.get("id").getAsInt(),
-                            result.has("song_art_image_url")
-                                    ? result.get("song_art_image_url").getAsString()
-                                    : null
+                            result.getId(),
+                            result.getThumbnailUrl()
                     );
                     song.setViews(views);
                     songsCache.put(i+1, song);
@@ -287,28 +291,20 @@ public class CLI {
     }
 
     // Helper method to determine genre
-    private Genre determineGenre(JsonObject songData) {
+    private Genre determineGenre(GeniusSong songData) {
         try {
-            if (songData.has("primary_tag")) {
-                JsonObject tag = safeGetJsonObject(songData, "primary_tag");
-                String genreName = safeGetString(tag, "name");
-                if (genreName != null) {
-                    Genre genre = Genre.fromString(genreName);
-                    if (genre != null) return genre;
-                }
+            String genreName = songData.getPrimaryTag();
+            if (genreName != null) {
+                Genre genre = Genre.fromString(genreName);
+                if (genre != null) return genre;
             }
 
             // Fallback to checking other tags
-            if (songData.has("tags")) {
-                JsonArray tags = safeGetJsonArray(songData, "tags");
-                if (tags != null) {
-                    for (JsonElement tag : tags) {
-                        String tagName = tag.getAsString().toLowerCase();
-                        if (tagName.contains("hip-hop")) return Genre.HIP_HOP;
-                        if (tagName.contains("rock")) return Genre.ROCK;
-                        if (tagName.contains("pop")) return Genre.POP;
-                    }
-                }
+            for (String tag : songData.getTags()) {
+                String tagName = tag.toLowerCase();
+                if (tagName.contains("hip-hop")) return Genre.HIP_HOP;
+                if (tagName.contains("rock")) return Genre.ROCK;
+                if (tagName.contains("pop")) return Genre.POP;
             }
         } catch (Exception e) {
             System.err.println("⚠️ Error determining genre: " + e.getMessage());
@@ -316,33 +312,9 @@ public class CLI {
         return Genre.POP; // Default fallback
     }
 
-    // Add these helper methods to CLI class
-    private JsonObject safeGetJsonObject(JsonObject parent, String key) {
-        if (parent == null || !parent.has(key) || !parent.get(key).isJsonObject()) {
-            return null;
-        }
-        return parent.getAsJsonObject(key);
-    }
-
-
-    private JsonArray safeGetJsonArray(JsonObject parent, String key) {
-        if (parent == null || !parent.has(key) || !parent.get(key).isJsonArray()) {
-            return null;
-        }
-        return parent.getAsJsonArray(key);
-    }
-
-    private String safeGetString(JsonObject obj, String key) {
-        if (obj == null || !obj.has(key) || obj.get(key).isJsonNull()) {
-            return null;
-        }
-        return obj.get(key).getAsString();
-    }
-
-
     private void viewSongDetails(Song song) {
         // Increment view count
-        song.setViews(song.getViews() + 1);
+        song.incrementViews();
 
         System.out.println("\n--- " + song.getTitle() + " ---");
 
@@ -360,10 +332,11 @@ public class CLI {
             System.out.println("\n[Thumbnail: " + song.getThumbnailUrl() + "]");
         }
 
-        // Display lyrics
+        // Display lyrics, giving a fetch that is still running a moment to finish
+        String lyrics = songService.awaitLyrics(song, LYRICS_WAIT_MILLIS);
         System.out.println("\nLyrics:\n" +
-                (song.getLyrics() != null && !song.getLyrics().isEmpty()
-                        ? song.getLyrics()
+                (lyrics != null && !lyrics.isEmpty()
+                        ? lyrics
                         : "No lyrics available"));
 
         // Show comments
@@ -460,8 +433,7 @@ public class CLI {
         String commentText = scanner.nextLine();
 
         Comment comment = new Comment((User) currentUser, commentText, new Date());
-        song.getComments().add(comment);
-        database.getComments().add(comment);
+        database.addComment(song, comment);
 
         System.out.println("Comment added successfully.");
     }
@@ -471,10 +443,9 @@ public class CLI {
         System.out.println("\n--- Browse Popular Artists ---");
 
         try {
-            JsonObject response = geniusAPI.searchArtists("popular");
-            JsonArray hits = response.getAsJsonObject("response").getAsJsonArray("hits");
+            List<SearchHit> hits = geniusAPI.searchArtists("popular");
 
-            if (hits == null || hits.size() == 0) {
+            if (hits.isEmpty()) {
                 System.out.println("No popular artists found.");
                 return;
             }
@@ -492,12 +463,10 @@ public class CLI {
 
             for (int i = 0; i < hits.size(); i++) {
                 try {
-                    JsonObject hit = hits.get(i).getAsJsonObject();
-                    JsonObject result = hit.getAsJsonObject("result");
-                    JsonObject artistObj = result.getAsJsonObject("primary_artist");
+                    GeniusArtist artistObj = hits.get(i).getSong().getPrimaryArtist();
 
-                    String name = artistObj.get("name").getAsString();
-                    boolean verified = artistObj.get("is_verified").getAsBoolean();
+                    String name = artistObj.getName();
+                    boolean verified = artistObj.isVerified();
 
                     System.out.printf("│ %4d │ %-24s │ %-20s │\n",
                             i+1,
@@ -513,7 +482,7 @@ public class CLI {
                             name.toLowerCase() + "@genius.com"
                     );
                     artist.setVerified(verified);
-                    artist.setGeniusId(String.valueOf(artistObj.get("id").getAsInt()));
+                    artist.setGeniusId(String.valueOf(artistObj.getId()));
                     artistsCache.put(i+1, artist);
 
                 } catch (Exception e) {
@@ -602,14 +571,11 @@ public class CLI {
 
         try {
             // Try to get charts from API (no response logging)
-            JsonObject charts = geniusAPI.getChartSongs();
+            List<GeniusSong> songs = geniusAPI.getChartSongs();
 
-            if (charts != null && charts.has("response")) {
-                JsonArray songs = charts.getAsJsonObject("response").getAsJsonArray("songs");
-                if (songs != null && songs.size() > 0) {
-                    displayChartSongs(songs);
-                    return;
-                }
+            if (!songs.isEmpty()) {
+                displayChartSongs(songs);
+                return;
             }
         } catch (Exception e) {
             // Silent catch - fall through to local data
@@ -619,7 +585,7 @@ public class CLI {
         showLocalTopSongs();
     }
 
-    private void displayChartSongs(JsonArray songs) {
+    private void displayChartSongs(List<GeniusSong> songs) {
         System.out.println("\n🏆 Current Top Charts:");
         printChartHeader();
 
@@ -627,13 +593,10 @@ public class CLI {
 
         for (int i = 0; i < songs.size(); i++) {
             try {
-                JsonObject songObj = songs.get(i).getAsJsonObject();
-                String title = songObj.get("title").getAsString();
-                String artist = songObj.getAsJsonObject("primary_artist")
-                        .get("name").getAsString();
-                int views = songObj.has("stats")
-                        ? songObj.getAsJsonObject("stats").get("pageviews").getAsInt()
-                        : 0;
+                GeniusSong songObj = songs.get(i);
+                String title = songObj.getTitle();
+                String artist = songObj.getPrimaryArtist().getName();
+                int views = songObj.getPageviews();
 
                 printSongRow(i+1, title, artist, views);
                 cacheSong(i+1, songObj, views);
@@ -664,12 +627,11 @@ public class CLI {
         System.out.println("└──────┴──────────────────────────────────────┴──────────────────────────┴──────────┘");
     }
 
-    private void cacheSong(int rank, JsonObject songObj, int views) {
-        String artist = songObj.getAsJsonObject("primary_artist")
-                .get("name").getAsString();
+    private void cacheSong(int rank, GeniusSong songObj, int views) {
+        String artist = songObj.getPrimaryArtist().getName();
 
         Song song = new Song(
-                songObj.get("title").getAsString(),
+                songObj.getTitle(),
                 "Loading lyrics...",
                 Collections.singletonList(new Artist(
                         artist.toLowerCase().replaceAll("\\W+", "_"),
@@ -680,10 +642,8 @@ public class CLI {
                 )),
                 Genre.POP,
                 new Date(),
-                songObj.get("id").getAsInt(),
-                songObj.has("song_art_image_url")
-                        ? songObj.get("song_art_image_url").getAsString()
-                        : null
+                songObj.getId(),
+                songObj.getThumbnailUrl()
         );
         song.setViews(views);
         chartsCache.put(rank, song);
@@ -751,12 +711,17 @@ public class CLI {
         System.out.println("\nSearch Categories:");
         System.out.println("1. Songs (Genius + Local)");
         System.out.println("2. Artists");
+        System.out.println("3. Lyrics (Local, use \"quotes\" for an exact phrase)");
         System.out.print("Select category to search: ");
 
         int category = readIntInput();
         switch (category) {
             case 1 -> {
-                List<Song> songs = songService.searchSongs(query);  // Combined search
+                SongSearchResult result = songService.searchSongs(query, songService.getSearchTimeoutMillis());  // Combined search
+                List<Song> songs = result.getSongs();
+                if (!result.includes(SongSearchResult.Source.GENIUS)) {
+                    System.out.println("(Genius did not answer in time; showing local results only)");
+                }
                 if (songs.isEmpty()) {
                     System.out.println("No songs found matching your query.");
                     return;
@@ -780,14 +745,11 @@ public class CLI {
 
             case 2 -> {
                 try {
-                    JsonObject response = songService.getGeniusAPI().search(query);
-                    JsonArray hits = response.getAsJsonObject("response").getAsJsonArray("hits");
-
                     List<Artist> artists = new ArrayList<>();
-                    for (JsonElement hit : hits) {
-                        JsonObject result = hit.getAsJsonObject().getAsJsonObject("result");
-                        if (result != null && "artist".equals(result.get("type").getAsString())) {
-                            String name = result.get("name").getAsString();
+                    for (SearchHit hit : songService.getGeniusAPI().search(query)) {
+                        GeniusArtist result = hit.getArtist();
+                        if (result != null) {
+                            String name = result.getName();
                             String username = name.toLowerCase().replaceAll("[^a-z0-9]", "_");
 
                             Artist artist = new Artist(
@@ -797,9 +759,9 @@ public class CLI {
                                     30,
                                     username + "@genius.com"
                             );
-                            artist.setGeniusId(String.valueOf(result.get("id").getAsInt()));
-                            if (result.has("image_url")) {
-                                artist.setImageUrl(result.get("image_url").getAsString());
+                            artist.setGeniusId(String.valueOf(result.getId()));
+                            if (result.getImageUrl() != null) {
+                                artist.setImageUrl(result.getImageUrl());
                             }
                             artist.setVerified(true);
                             artists.add(artist);
@@ -826,6 +788,29 @@ public class CLI {
                 }
             }
 
+            case 3 -> {
+                List<LyricsMatch> matches = songService.searchLyrics(query);
+                if (!songService.isLyricsIndexReady()) {
+                    System.out.println("Lyrics are still being indexed; some songs may be missing.");
+                }
+                if (matches.isEmpty()) {
+                    System.out.println("No lyrics found matching your query.");
+                    return;
+                }
+
+                System.out.println("\nLyrics matching '" + query + "':");
+                for (int i = 0; i < matches.size(); i++) {
+                    LyricsMatch match = matches.get(i);
+                    System.out.printf("%d. %s - \"%s\"%n", i + 1, match.getSong().getTitle(), match.getSnippet());
+                }
+
+                System.out.print("Enter song number to view details (0 to go back): ");
+                int choice = readIntInput();
+                if (choice > 0 && choice <= matches.size()) {
+                    viewSongDetails(matches.get(choice - 1).getSong());
+                }
+            }
+
             default -> System.out.println("Invalid category.");
         }
     }
@@ -0,0 +1,79 @@
+package com.genius.search;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Song;
+import com.genius.model.enums.Genre;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LyricsIndexTest {
+    @Test
+    void aSlowUpdateCannotInstallStaleLyricsOverANewerOne() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Artist artist = new Artist("artist_0", "secret", "Artist 0", 30, "artist@example.com");
+        // Stalls the first update while it reads the lyrics, so a second update can overtake it
+        Song song = new Song("Song 0", "old words", List.of(artist), Genre.POP, new Date(0), 0, null) {
+            @Override
+            public String getLyrics() {
+                String lyrics = super.getLyrics();
+                if (reading.getCount() > 0) {
+                    reading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return lyrics;
+            }
+        };
+        song.setId(0);
+        LyricsIndex index = new LyricsIndex();
+
+        Thread slow = new Thread(() -> index.update(song));
+        slow.start();
+        reading.await();
+        Thread fast = new Thread(() -> {
+            song.setLyrics("new words");
+            index.update(song);
+        });
+        fast.start();
+        fast.join(200); // Gives the newer update time to finish first, if nothing stops it
+        release.countDown();
+        slow.join();
+        fast.join();
+
+        assertEquals(1, index.search("new words", 10).size());
+        assertTrue(index.search("old", 10).isEmpty());
+    }
+
+    @Test
+    void addAllDoesNotOverwriteNewerUpdates() {
+        LyricsIndex index = new LyricsIndex();
+        Song changed = song(0, "old words");
+        Song untouched = song(1, "quiet river");
+        List<Song> loaded = List.of(changed, untouched);
+
+        changed.setLyrics("new words");
+        index.update(changed);
+        index.addAll(loaded);
+
+        assertEquals(1, index.search("new words", 10).size());
+        assertEquals(1, index.search("quiet river", 10).size());
+        assertTrue(index.search("old", 10).isEmpty());
+    }
+
+    private static Song song(int id, String lyrics) {
+        Artist artist = new Artist("artist_" + id, "secret", "Artist " + id, 30, "artist@example.com");
+        Song song = new Song("Song " + id, lyrics, List.of(artist), Genre.POP, new Date(0), id, null);
+        song.setId(id);
+        return song;
+    }
+}
@@ -0,0 +1,74 @@
+package com.genius.search;
+
+import com.genius.model.accounts.Artist;
+import com.genius.model.content.Song;
+import com.genius.model.enums.Genre;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class SongRankerTest {
+
+    @Test
+    void viewsBreakATieInTermScore() {
+        SongRanker ranker = new SongRanker();
+        double idf = SongRanker.idf(100, 2);
+        ranker.add(1, SongRanker.TITLE_WEIGHT, idf, 1, 3, 3.0);
+        ranker.add(2, SongRanker.TITLE_WEIGHT, idf, 1, 3, 3.0);
+
+        Map<Integer, Long> views = Map.of(1, 10L, 2, 50_000L);
+        assertArrayEquals(new int[]{2, 1}, ranker.top(10, id -> views.get(id)));
+    }
+
+    @Test
+    void popularityDoesNotBuryABetterMatch() {
+        SongRanker ranker = new SongRanker();
+        // A rare word in the title against a common word once in long lyrics
+        ranker.add(1, SongRanker.TITLE_WEIGHT, SongRanker.idf(1000, 3), 1, 2, 3.0);
+        ranker.add(2, SongRanker.LYRICS_WEIGHT, SongRanker.idf(1000, 400), 1, 300, 150.0);
+
+        Map<Integer, Long> views = Map.of(1, 0L, 2, 100_000_000L);
+        assertArrayEquals(new int[]{1, 2}, ranker.top(10, id -> views.get(id)));
+    }
+
+    @Test
+    void onlyTheBestAreKeptAndFullTiesGoToTheLowerId() {
+        SongRanker ranker = new SongRanker();
+        double idf = SongRanker.idf(200, 150);
+        for (int id = 0; id < 150; id++) {
+            // Songs 100 and up match twice; the rest once
+            ranker.add(id, SongRanker.LYRICS_WEIGHT, idf, id >= 100 ? 2 : 1, 50, 50.0);
+        }
+
+        assertArrayEquals(new int[]{100, 101, 102}, ranker.top(3, id -> 0));
+        assertArrayEquals(new int[0], ranker.top(0, id -> 0));
+    }
+
+    @Test
+    void indexedSongsWithTheSameTitleRankByViews() {
+        SongIndex index = new SongIndex();
+        Song quiet = song(0, "Ghost River", "Maya Stone", 100);
+        Song popular = song(1, "Ghost River", "Leon Vance", 90_000);
+        Song other = song(2, "Summer Rain", "Ruby Cole", 1_000_000);
+        List<Song> songs = List.of(quiet, popular, other);
+        songs.forEach(index::add);
+
+        SongRanker ranker = new SongRanker();
+        index.score(Set.of("ghost", "river"), ranker);
+
+        assertArrayEquals(new int[]{1, 0}, ranker.top(10, id -> songs.get(id).getViews()));
+    }
+
+    private static Song song(int id, String title, String artist, int views) {
+        Artist by = new Artist(artist.toLowerCase().replace(' ', '_'), "secret", artist, 30, "artist@example.com");
+        Song song = new Song(title, "", List.of(by), Genre.POP, new Date(0), id, null);
+        song.setId(id);
+        song.setViews(views);
+        return song;
+    }
+}
@@ -0,0 +1,41 @@
+package com.genius.services.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeniusDecoderTest {
+
+    @Test
+    void searchHitsAreDecodedIntoAnUnmodifiableList() throws IOException {
+        String json = "{\"meta\":{\"status\":200},\"response\":{\"hits\":["
+                + "{\"highlights\":[],\"type\":\"song\",\"result\":{\"id\":7,\"title\":\"Hello\","
+                + "\"path\":\"/Adele-hello-lyrics\",\"stats\":{\"pageviews\":42},"
+                + "\"primary_artist\":{\"id\":3,\"name\":\"Adele\",\"is_verified\":true}}}]}}";
+
+        List<SearchHit> hits = GeniusDecoder.readSearchHits(new StringReader(json));
+
+        assertEquals(1, hits.size());
+        GeniusSong song = hits.get(0).getSong();
+        assertEquals("Hello", song.getTitle());
+        assertEquals("/Adele-hello-lyrics", song.getPath());
+        assertEquals("Adele", song.getPrimaryArtist().getName());
+        assertThrows(UnsupportedOperationException.class, () -> hits.remove(0));
+    }
+
+    @Test
+    void chartSongsAreDecodedIntoAnUnmodifiableList() throws IOException {
+        String json = "{\"response\":{\"chart_items\":[{\"item\":{\"id\":1,\"title\":\"One\"}},"
+                + "{\"item\":{\"id\":2,\"title\":\"Two\"}}]}}";
+
+        List<GeniusSong> songs = GeniusDecoder.readChartSongs(new StringReader(json));
+
+        assertEquals(List.of("One", "Two"), songs.stream().map(GeniusSong::getTitle).toList());
+        assertThrows(UnsupportedOperationException.class, () -> songs.sort(null));
+    }
+}
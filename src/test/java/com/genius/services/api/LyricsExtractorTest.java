@@ -0,0 +1,110 @@
+package com.genius.services.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LyricsExtractorTest {
+
+    @Test
+    void savedPageYieldsItsLyricsAndSections() throws IOException {
+        Lyrics lyrics = extractFixture("/lyrics/song-page.html", true);
+
+        assertEquals(String.join("\n",
+                "Oh-oh, oh-oh",
+                "",
+                "We light them on the water",
+                "Watch 'em drift & fade",
+                "Every \"wish\" we never made",
+                "",
+                "Paper lanterns, paper lanterns",
+                "",
+                "Burning out\u00A0slow", // &nbsp; is kept as a no-break space
+                "Café lights below <3",
+                "",
+                "Oh-oh"), lyrics.getText());
+
+        List<Lyrics.Section> sections = lyrics.getSections();
+        assertEquals(4, sections.size());
+        assertSection(sections.get(0), "Intro", 0);
+        assertSection(sections.get(1), "Verse 1: Test Artist", 2);
+        assertSection(sections.get(2), "Chorus: Test Artist & Guest", 6);
+        assertSection(sections.get(3), "Outro", 11);
+        assertSectionsStartStanzas(lyrics);
+    }
+
+    @Test
+    void sectionsAreOnlyReturnedWhenAskedFor() throws IOException {
+        Lyrics withSections = extractFixture("/lyrics/song-page.html", true);
+        Lyrics withoutSections = extractFixture("/lyrics/song-page.html", false);
+
+        assertEquals(withSections.getText(), withoutSections.getText());
+        assertTrue(withoutSections.getSections().isEmpty());
+    }
+
+    @Test
+    void headersInARowStartAtTheSameLine() throws IOException {
+        Lyrics lyrics = extract("<div data-lyrics-container=\"true\">One<br>[Verse 2]<br>[Chorus]<br>Two<br>"
+                + "&#91;Bridge&#93;<br>Three</div>");
+
+        assertEquals("One\n\nTwo\n\nThree", lyrics.getText());
+        assertSection(lyrics.getSections().get(0), "Verse 2", 2);
+        assertSection(lyrics.getSections().get(1), "Chorus", 2);
+        assertSection(lyrics.getSections().get(2), "Bridge", 4);
+        assertSectionsStartStanzas(lyrics);
+    }
+
+    @Test
+    void blankLinesDoNotPileUp() throws IOException {
+        Lyrics lyrics = extract("<div data-lyrics-container=\"true\"><br><br>One<br><br><br><br>Two<br><br></div>"
+                + "<div data-lyrics-container='true'><br>[Outro]<br><br>Three</div>");
+
+        assertEquals("One\n\nTwo\n\nThree", lyrics.getText());
+        assertSection(lyrics.getSections().get(0), "Outro", 4);
+    }
+
+    @Test
+    void pageWithoutContainersHasNoLyrics() throws IOException {
+        Lyrics lyrics = extract("<html><body><div class=\"lyrics\">Not marked up as lyrics<br>at all</div></body></html>");
+
+        assertEquals("", lyrics.getText());
+        assertTrue(lyrics.getSections().isEmpty());
+    }
+
+    private static void assertSection(Lyrics.Section section, String name, int line) {
+        assertEquals(name, section.getName());
+        assertEquals(line, section.getLine(), () -> "Start of " + section);
+    }
+
+    // Every section starts at a lyric line that opens a stanza
+    private static void assertSectionsStartStanzas(Lyrics lyrics) {
+        String[] lines = lyrics.getText().split("\n", -1);
+        for (Lyrics.Section section : lyrics.getSections()) {
+            int line = section.getLine();
+            assertTrue(line < lines.length && !lines[line].isEmpty(), () -> section + " points at a blank line");
+            assertTrue(line == 0 || lines[line - 1].isEmpty(), () -> section + " starts mid-stanza");
+        }
+    }
+
+    private static Lyrics extract(String html) throws IOException {
+        return LyricsExtractor.extract(new StringReader(html), true);
+    }
+
+    private static Lyrics extractFixture(String resource, boolean keepSections) throws IOException {
+        InputStream page = LyricsExtractorTest.class.getResourceAsStream(resource);
+        assertNotNull(page, resource);
+        try (Reader in = new InputStreamReader(page, StandardCharsets.UTF_8)) {
+            return LyricsExtractor.extract(in, keepSections);
+        }
+    }
+}
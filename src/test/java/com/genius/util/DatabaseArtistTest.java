@@ -0,0 +1,97 @@
+package com.genius.util;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.util.storage.LogStructuredStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class DatabaseArtistTest {
+    private static final int THREADS = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void racingCallersForOneNameStoreOneArtist() throws Exception {
+        Database database = database();
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<Future<Artist>> callers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            callers.add(threads.submit(() -> {
+                start.await();
+                return database.getOrCreateArtist("Night Rivers", name -> {
+                    created.incrementAndGet();
+                    return artist("night_rivers", name);
+                });
+            }));
+        }
+        start.countDown();
+        Artist first = callers.get(0).get();
+        for (Future<Artist> caller : callers) {
+            assertSame(first, caller.get());
+        }
+        threads.shutdown();
+
+        assertEquals(1, created.get(), "the factory runs once");
+        long stored = database.getAccounts().stream().filter(Artist.class::isInstance).count();
+        assertEquals(1, stored, "one account stored");
+        database.close();
+    }
+
+    @Test
+    void aSlowCreationDoesNotHoldUpOtherNames() throws Exception {
+        Database database = database();
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        Future<Artist> slow = threads.submit(() -> database.getOrCreateArtist("Slow Artist", name -> {
+            creating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return artist("slow_artist", name);
+        }));
+        creating.await();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Artist other = database.getOrCreateArtist("Quick Artist", name -> artist("quick_artist", name));
+            assertEquals("quick_artist", other.getUsername());
+        });
+        release.countDown();
+        assertEquals("slow_artist", slow.get().getUsername());
+        threads.shutdown();
+
+        List<String> usernames = database.getAccounts().stream().map(Account::getUsername).toList();
+        assertEquals(List.of("quick_artist", "slow_artist"), usernames.stream().sorted().toList());
+        database.close();
+    }
+
+    private Database database() {
+        return new Database(new LogStructuredStorage(directory.resolve("catalog.dat").toString(),
+                directory.resolve("catalog.log").toString(), directory.resolve("lyrics.blob").toString(), 16),
+                60_000, 1_000);
+    }
+
+    private static Artist artist(String username, String name) {
+        return new Artist(username, "secret", name, 30, username + "@example.com");
+    }
+}
@@ -0,0 +1,184 @@
+package com.genius.util;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.Artist;
+import com.genius.model.accounts.User;
+import com.genius.model.content.Comment;
+import com.genius.model.content.Song;
+import com.genius.model.enums.Genre;
+import com.genius.search.LyricsMatch;
+import com.genius.util.storage.LogStructuredStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs registrations, imports, comments and flushes from many threads at once
+ * against one Database, then checks that ids stayed unique and that every write
+ * is still there after a reload. A deadlock shows up as a timeout.
+ */
+class DatabaseStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 400;
+    // Few artists and overlapping Genius ids, so threads keep colliding on the same entries
+    private static final int ARTISTS = 5;
+    private static final int GENIUS_IDS = 600;
+
+    @TempDir
+    Path directory;
+
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> imported = ConcurrentHashMap.newKeySet();
+    // Comment text to the Genius id of the song it was added to
+    private final Map<String, Integer> commented = new ConcurrentHashMap<>();
+    private final AtomicInteger nextUser = new AtomicInteger();
+    private final AtomicInteger nextComment = new AtomicInteger();
+
+    @Test
+    void concurrentWritesKeepIdsUniqueAndSurviveReload() {
+        assertTimeoutPreemptively(Duration.ofSeconds(120), () -> {
+            Database database = new Database(storage(), 5, 32);
+            User firstUser = register(database);
+
+            ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(threads.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int operation = ThreadLocalRandom.current().nextInt(10);
+                        if (operation < 3) {
+                            register(database);
+                        } else if (operation < 7) {
+                            importSong(database);
+                        } else if (operation < 9) {
+                            comment(database, firstUser);
+                        } else if (ThreadLocalRandom.current().nextInt(8) == 0) {
+                            database.saveData();
+                        } else {
+                            database.awaitDurable();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            threads.shutdown();
+
+            assertInvariants(database);
+            database.close();
+
+            Database reloaded = new Database(storage(), 5, 32);
+            assertInvariants(reloaded);
+            reloaded.close();
+        });
+    }
+
+    private void assertInvariants(Database database) throws InterruptedException {
+        List<Song> songs = database.getSongs();
+        Set<Integer> geniusIds = new HashSet<>();
+        for (int i = 0; i < songs.size(); i++) {
+            Song song = songs.get(i);
+            assertEquals(i, song.getId(), "song ids are dense and unique");
+            assertTrue(geniusIds.add(song.getGeniusId()), "one song per Genius id");
+        }
+        assertEquals(imported, geniusIds);
+        for (int geniusId : imported) {
+            assertSame(database.getSongByGeniusId(geniusId), songs.get(database.getSongByGeniusId(geniusId).getId()));
+        }
+        assertTrue(database.awaitLyricsIndex(30, TimeUnit.SECONDS), "lyrics indexed after startup");
+        for (int geniusId : imported) {
+            List<LyricsMatch> matches = database.searchLyrics("\"line " + geniusId + "\"", 5);
+            assertEquals(1, matches.size(), "lyrics of song " + geniusId + " are searchable");
+            assertSame(database.getSongByGeniusId(geniusId), matches.get(0).getSong());
+        }
+
+        Set<String> usernames = new HashSet<>();
+        for (Account account : database.getAccounts()) {
+            assertTrue(usernames.add(account.getUsername().toLowerCase()), "usernames are unique");
+        }
+        assertTrue(usernames.containsAll(registered));
+        for (int a = 0; a < ARTISTS; a++) {
+            assertNotNull(database.getArtistByName(artistName(a)));
+        }
+
+        Map<String, Integer> comments = new ConcurrentHashMap<>();
+        for (Song song : songs) {
+            for (Comment comment : song.getComments()) {
+                assertEquals(null, comments.put(comment.getText(), song.getGeniusId()), "each comment stored once");
+            }
+        }
+        assertEquals(commented, comments);
+    }
+
+    private User register(Database database) {
+        String username = "user_" + nextUser.incrementAndGet();
+        User user = new User(username, "secret", "User", 30, username + "@example.com");
+        assertTrue(database.addAccount(user));
+        registered.add(username);
+        return user;
+    }
+
+    private void importSong(Database database) {
+        int geniusId = ThreadLocalRandom.current().nextInt(GENIUS_IDS);
+        String name = artistName(ThreadLocalRandom.current().nextInt(ARTISTS));
+        Artist artist = database.getOrCreateArtist(name, n -> {
+            String username = n.toLowerCase().replace(' ', '_');
+            for (int suffix = 2; database.getAccountByUsername(username) != null; suffix++) {
+                username = n.toLowerCase().replace(' ', '_') + "_" + suffix;
+            }
+            return new Artist(username, "secret", n, 30, username + "@example.com");
+        });
+        assertNotNull(artist);
+        Song song = new Song("Song " + geniusId, "line " + geniusId, List.of(artist), Genre.POP, new Date(), geniusId, null);
+        Song stored = database.addSongIfAbsent(song);
+        assertEquals(geniusId, stored.getGeniusId());
+        imported.add(geniusId);
+    }
+
+    private void comment(Database database, User author) {
+        List<Song> songs = database.getSongs();
+        if (songs.isEmpty()) {
+            return;
+        }
+        Song song = songs.get(ThreadLocalRandom.current().nextInt(songs.size()));
+        String text = "comment " + nextComment.incrementAndGet();
+        database.addComment(song, new Comment(author, text, new Date()));
+        commented.put(text, song.getGeniusId());
+    }
+
+    private static String artistName(int index) {
+        return "Stress Artist " + index;
+    }
+
+    private LogStructuredStorage storage() {
+        return new LogStructuredStorage(directory.resolve("catalog.dat").toString(),
+                directory.resolve("catalog.log").toString(), directory.resolve("lyrics.blob").toString(), 16);
+    }
+}
@@ -0,0 +1,79 @@
+package com.genius.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskCacheTest {
+    private static final int THREADS = 4;
+    private static final int KEYS_PER_THREAD = 50;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentPutsAreAllReadableAfterReopening() throws Exception {
+        DiskCache cache = new DiskCache(directory.toString(), 64L * 1024 * 1024);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(threads.submit(() -> {
+                for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                    cache.put(key(thread, i), value(thread, i));
+                    cache.put("shared", value(thread, i)); // Every thread also races on one key
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        threads.shutdown();
+
+        assertEquals(THREADS * KEYS_PER_THREAD + 1, cache.getStats().entries);
+        File[] leftovers = directory.toFile().listFiles((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length);
+
+        DiskCache reopened = new DiskCache(directory.toString(), 64L * 1024 * 1024);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                assertArrayEquals(value(t, i), reopened.get(key(t, i)));
+            }
+        }
+        assertTrue(new String(reopened.get("shared"), StandardCharsets.UTF_8).startsWith("lyrics "));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedPastTheBound() {
+        DiskCache cache = new DiskCache(directory.toString(), 4 * 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.put(key(0, i), value(0, i));
+        }
+
+        DiskCache.Stats stats = cache.getStats();
+        assertTrue(stats.bytes <= 4 * 1024, stats::toString);
+        assertTrue(stats.evictions > 0, stats::toString);
+        assertArrayEquals(value(0, 99), cache.get(key(0, 99)));
+    }
+
+    private static String key(int thread, int i) {
+        return "/Artist-" + thread + "-song-" + i + "-lyrics";
+    }
+
+    private static byte[] value(int thread, int i) {
+        return ("lyrics " + thread + " " + i + "\n").repeat(20).getBytes(StandardCharsets.UTF_8);
+    }
+}
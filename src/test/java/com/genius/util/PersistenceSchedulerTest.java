@@ -0,0 +1,35 @@
+package com.genius.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PersistenceSchedulerTest {
+
+    @Test
+    void waitersSeeFailedFlushesInsteadOfHanging() {
+        AtomicBoolean diskBroken = new AtomicBoolean(true);
+        PersistenceScheduler scheduler = new PersistenceScheduler(() -> {
+            if (diskBroken.get()) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+        }, 60_000, 1_000);
+
+        scheduler.markDirty();
+        IOException error = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IOException.class, scheduler::awaitDurable));
+        assertEquals("disk full", error.getCause().getMessage());
+
+        diskBroken.set(false);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertDoesNotThrow(scheduler::awaitDurable));
+        scheduler.close();
+    }
+}
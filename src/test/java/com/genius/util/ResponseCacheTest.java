@@ -0,0 +1,29 @@
+package com.genius.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheTest {
+
+    @Test
+    void listValuesAreFrozenBeforeTheyAreShared() throws Exception {
+        ResponseCache<List<String>> cache = new ResponseCache<>(60_000, 0, 1024 * 1024, list -> 16L * list.size(), List::copyOf);
+        List<String> loaded = new ArrayList<>(List.of("a", "b"));
+
+        List<String> first = cache.get("key", () -> loaded);
+        loaded.add("c"); // The loader's own list must not leak into the cache
+
+        List<String> second = cache.get("key", () -> {
+            throw new AssertionError("Should be served from the cache");
+        });
+        assertSame(first, second);
+        assertEquals(List.of("a", "b"), second);
+        assertThrows(UnsupportedOperationException.class, () -> second.add("d"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.genius.util.storage;
+
+import com.genius.model.accounts.Account;
+import com.genius.model.accounts.User;
+import com.genius.util.Database;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogStructuredStorageTest {
+    private static final int ROUNDS = 10;
+    private static final int ACCOUNTS_PER_ROUND = 6;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void acknowledgedMutationsSurviveFailingSnapshots() throws Exception {
+        // A directory where the snapshot's temporary file goes makes every snapshot write fail
+        File blocker = directory.resolve("catalog.dat.tmp").toFile();
+        assertTrue(blocker.mkdir());
+
+        Database database = new Database(storage(), 60_000, 1_000);
+        Set<String> acknowledged = new HashSet<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < ACCOUNTS_PER_ROUND; i++) {
+                String username = "user_" + round + "_" + i;
+                assertTrue(database.addAccount(new User(username, "secret", "User " + i, 30, username + "@example.com")));
+                acknowledged.add(username);
+            }
+            database.awaitDurable();
+            database.saveData(); // Rotates the log, then fails to write the snapshot
+        }
+        assertTrue(Files.notExists(directory.resolve("catalog.dat")));
+
+        // Reopen without closing, as after a crash; the failed snapshots left only the log
+        Database reloaded = new Database(storage(), 60_000, 1_000);
+        Set<String> usernames = new HashSet<>();
+        for (Account account : reloaded.getAccounts()) {
+            usernames.add(account.getUsername());
+        }
+        assertEquals(acknowledged, usernames);
+    }
+
+    private LogStructuredStorage storage() {
+        return new LogStructuredStorage(directory.resolve("catalog.dat").toString(),
+                directory.resolve("catalog.log").toString(), directory.resolve("lyrics.blob").toString(), 4);
+    }
+}